@@ -0,0 +1,123 @@
+package com.saloeater.emi_loot_registry;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mojang.logging.LogUtils;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.packs.repository.PackRepository;
+import net.minecraft.world.level.storage.LevelResource;
+import net.minecraftforge.fml.loading.FMLPaths;
+import net.minecraftforge.gametest.GameTestHolder;
+import net.minecraftforge.gametest.PrefixGameTestTemplate;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end reload load test. Writes a synthetic datapack into the test world, reloads with it
+ * enabled and measures reload wall time, the longest main-thread tick during the reload and peak heap.
+ *
+ * <p>Runs with {@code ./gradlew runGameTestServer}. The datapack size is set with the
+ * {@code emi_loot_registry.loadTest.files}, {@code .entries} and {@code .seed} system properties.
+ * Results are logged and written to logs/emi_loot_registry_load_test.json.
+ */
+@GameTestHolder("emi_loot_registry")
+@PrefixGameTestTemplate(false)
+public class SupplierReloadLoadTest {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final String PACK_NAME = "emi_loot_registry_load_test";
+
+    @GameTest(template = "empty", timeoutTicks = 20 * 60 * 10)
+    public static void reloadSyntheticDatapack(GameTestHelper helper) {
+        int files = Integer.getInteger("emi_loot_registry.loadTest.files", 10000);
+        int entries = Integer.getInteger("emi_loot_registry.loadTest.entries", 8);
+        long seed = Long.getLong("emi_loot_registry.loadTest.seed", 42L);
+
+        MinecraftServer server = helper.getLevel().getServer();
+        Path packDir = server.getWorldPath(LevelResource.DATAPACK_DIR).resolve(PACK_NAME);
+        try {
+            new SyntheticSupplierGenerator(seed).writeDatapack(packDir, "emi_loot_registry", files, entries);
+        } catch (IOException e) {
+            helper.fail("Failed to write synthetic datapack: " + e.getMessage());
+            return;
+        }
+
+        PackRepository packs = server.getPackRepository();
+        packs.reload();
+        List<String> original = List.copyOf(packs.getSelectedIds());
+        List<String> selected = new ArrayList<>(original);
+        selected.add("file/" + PACK_NAME);
+
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        // The longest gap between two test ticks is the worst main-thread stall during the reload
+        long[] lastTick = {System.nanoTime()};
+        long[] longestTick = {0};
+        helper.onEachTick(() -> {
+            long now = System.nanoTime();
+            longestTick[0] = Math.max(longestTick[0], now - lastTick[0]);
+            lastTick[0] = now;
+        });
+
+        long start = System.nanoTime();
+        CompletableFuture<Long> reload = server.reloadResources(selected).thenApply(ignored -> System.nanoTime() - start);
+
+        helper.startSequence()
+            .thenWaitUntil(() -> helper.assertTrue(reload.isDone(), "Reload still running"))
+            .thenExecute(() -> {
+                helper.assertFalse(reload.isCompletedExceptionally(), "Reload failed");
+
+                // JSON suppliers are only kept with FULL retention, so the loaded count comes from the metrics
+                SupplierMetrics metrics = SupplierMetrics.current();
+                long loaded = metrics.getFilesLoaded();
+                long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+                JsonObject result = new JsonObject();
+                result.addProperty("files", files);
+                result.addProperty("entries_per_file", entries);
+                result.addProperty("seed", seed);
+                result.addProperty("loaded", loaded);
+                result.addProperty("reload_ms", TimeUnit.NANOSECONDS.toMillis(reload.join()));
+                result.addProperty("longest_tick_ms", TimeUnit.NANOSECONDS.toMillis(longestTick[0]));
+                result.addProperty("peak_heap_mib", peakHeap / (1024 * 1024));
+                result.add("metrics", JsonParser.parseString(metrics.toJson()));
+                report(result);
+
+                // Leave the world with its original datapacks
+                server.reloadResources(original);
+
+                helper.assertTrue(metrics.getFilesFailed() == 0, metrics.getFilesFailed() + " supplier files failed to load");
+                helper.assertTrue(loaded >= files, "Loaded " + loaded + " of " + files + " synthetic suppliers");
+            })
+            .thenSucceed();
+    }
+
+    private static void report(JsonObject result) {
+        String json = new GsonBuilder().setPrettyPrinting().create().toJson(result);
+        LOGGER.info("Supplier reload load test: {}", json);
+
+        Path path = FMLPaths.GAMEDIR.get().resolve("logs").resolve("emi_loot_registry_load_test.json");
+        try {
+            Files.createDirectories(path.getParent());
+            Files.writeString(path, json, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write load test results to {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.saloeater.emi_loot_registry;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generates synthetic supplier JSON shaped like the ExampleDataPack files, for benchmarks and load tests.
+ * Output only depends on the seed, so runs with the same seed decode the same data.
+ *
+ * <p>Files are spread evenly over the five supplier folders and mix {@code random_chance},
+ * {@code location}, {@code weather} and {@code value_check} conditions with {@code set_count} functions.
+ */
+public class SyntheticSupplierGenerator {
+    public static final String[] TYPES = {"chests", "blocks", "entities", "gameplay", "archaeology"};
+
+    private static final String[] ITEMS = {
+        "minecraft:diamond", "minecraft:emerald", "minecraft:iron_ingot", "minecraft:gold_ingot",
+        "minecraft:brewing_stand", "minecraft:bone", "minecraft:string", "minecraft:apple",
+        "minecraft:bread", "minecraft:arrow", "minecraft:ender_pearl", "minecraft:name_tag"
+    };
+    private static final String[] MOBS = {"minecraft:zombie", "minecraft:skeleton", "minecraft:creeper", "minecraft:spider"};
+    private static final String[] DIMENSIONS = {"minecraft:overworld", "minecraft:the_nether", "minecraft:the_end"};
+    private static final double[] CHANCES = {0.01, 0.02, 0.05, 0.1, 0.25, 0.5};
+
+    private final long seed;
+
+    public SyntheticSupplierGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return The supplier folder of the file with this index
+     */
+    public String type(int index) {
+        return TYPES[index % TYPES.length];
+    }
+
+    /**
+     * @return The resource path of the file with this index, e.g. {@code emi_loot_suppliers/chests/synthetic_5.json}
+     */
+    public String path(int index) {
+        return "emi_loot_suppliers/" + type(index) + "/synthetic_" + index + ".json";
+    }
+
+    /**
+     * Generates the JSON of one supplier file.
+     *
+     * @param index Index of the file, which also picks its folder
+     * @param entries Number of entries in the file
+     */
+    public String generate(int index, int entries) {
+        Random random = new Random(seed * 31 + index);
+        String type = type(index);
+
+        JsonObject supplier = new JsonObject();
+        // Several files target the same table, as addon packs extending vanilla tables do
+        supplier.addProperty("loot_table_id", "minecraft:" + type + "/synthetic_" + (index / TYPES.length) % 64);
+        if (type.equals("entities")) {
+            supplier.addProperty("mob_id", MOBS[random.nextInt(MOBS.length)]);
+        }
+
+        JsonArray entryArray = new JsonArray();
+        for (int i = 0; i < entries; i++) {
+            entryArray.add(entry(random));
+        }
+        supplier.add("entries", entryArray);
+        return supplier.toString();
+    }
+
+    /**
+     * Writes a complete datapack with the given number of supplier files, replacing any previous contents of the folder.
+     *
+     * @param root Datapack folder, e.g. {@code <world>/datapacks/synthetic}
+     * @param namespace Namespace the supplier files are placed in
+     */
+    public void writeDatapack(Path root, String namespace, int files, int entries) throws IOException {
+        if (Files.exists(root)) {
+            try (Stream<Path> existing = Files.walk(root)) {
+                for (Path path : existing.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+
+        Files.createDirectories(root);
+        Files.writeString(root.resolve("pack.mcmeta"),
+            "{\"pack\":{\"pack_format\":15,\"description\":\"Synthetic EMI Loot Registry suppliers\"}}", StandardCharsets.UTF_8);
+
+        Path data = root.resolve("data").resolve(namespace);
+        for (String type : TYPES) {
+            Files.createDirectories(data.resolve("emi_loot_suppliers").resolve(type));
+        }
+        for (int i = 0; i < files; i++) {
+            Files.writeString(data.resolve(path(i)), generate(i, entries), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static JsonObject entry(Random random) {
+        JsonObject entry = new JsonObject();
+        entry.addProperty("item", ITEMS[random.nextInt(ITEMS.length)]);
+        entry.addProperty("weight", 1 + random.nextInt(20));
+
+        JsonArray conditions = new JsonArray();
+        conditions.add(condition("random_chance", random));
+        if (random.nextInt(4) == 0) {
+            conditions.add(condition("location", random));
+        }
+        if (random.nextInt(8) == 0) {
+            conditions.add(condition("weather", random));
+        }
+        if (random.nextInt(6) == 0) {
+            conditions.add(condition("value_check", random));
+        }
+        entry.add("conditions", conditions);
+
+        if (random.nextInt(3) == 0) {
+            JsonObject function = new JsonObject();
+            function.addProperty("function", "minecraft:set_count");
+            function.addProperty("count", 1 + random.nextInt(4));
+            function.addProperty("add", random.nextBoolean());
+            JsonArray functions = new JsonArray();
+            functions.add(function);
+            entry.add("functions", functions);
+        }
+        return entry;
+    }
+
+    private static JsonObject condition(String type, Random random) {
+        JsonObject condition = new JsonObject();
+        condition.addProperty("type", type);
+        switch (type) {
+            case "random_chance" -> condition.addProperty("chance", CHANCES[random.nextInt(CHANCES.length)]);
+            case "location" -> condition.addProperty("dimension", DIMENSIONS[random.nextInt(DIMENSIONS.length)]);
+            case "weather" -> condition.addProperty(random.nextBoolean() ? "raining" : "thundering", true);
+            case "value_check" -> {
+                condition.addProperty("key", "emi_loot_registry.synthetic_key");
+                condition.addProperty("value_plain", String.valueOf(random.nextInt(4)));
+            }
+            default -> throw new IllegalArgumentException("Unknown condition type: " + type);
+        }
+        return condition;
+    }
+}
@@ -0,0 +1,57 @@
+package com.saloeater.emi_loot_registry;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.util.GsonHelper;
+import net.minecraft.world.item.Item;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Boots the vanilla registries without a game client or server, so items, loot serializers
+ * and components resolve inside a plain JMH fork.
+ */
+final class Headless {
+    private Headless() {
+    }
+
+    static void bootstrap() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    /**
+     * Stubs the loader's lookups: items come from a fixed table of the vanilla items, and {@code set_count}
+     * is read straight from its JSON, since EMI Loot's mixin accessor is not applied outside ModLauncher.
+     * Call after {@link #bootstrap()}.
+     */
+    static SupplierLoader.Lookups lookups() {
+        Map<ResourceLocation, Item> items = new HashMap<>();
+        BuiltInRegistries.ITEM.entrySet().forEach(entry -> items.put(entry.getKey().location(), entry.getValue()));
+        Map<ResourceLocation, Item> table = Map.copyOf(items);
+
+        return new SupplierLoader.Lookups() {
+            @Override
+            public Optional<Item> getItem(ResourceLocation id) {
+                return Optional.ofNullable(table.get(id));
+            }
+
+            @Override
+            public SupplierLoader.SetCount getSetCount(JsonObject functionObj, ResourceManager resourceManager) {
+                // Only constant counts, which is all the synthetic generator writes
+                JsonElement count = functionObj.get("count");
+                if (count == null || !count.isJsonPrimitive()) {
+                    return null;
+                }
+                return new SupplierLoader.SetCount(count.getAsFloat(), GsonHelper.getAsBoolean(functionObj, "add", false));
+            }
+        };
+    }
+}
@@ -0,0 +1,124 @@
+package com.saloeater.emi_loot_registry;
+
+import com.google.gson.stream.JsonReader;
+import fzzyhmstrs.emi_loot.util.TextKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParamSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding cost of supplier files: a whole synthetic datapack, single conditions and functions,
+ * and resolving a file's context type through the compiled routes. Everything goes through the same
+ * {@code readDefinitions} and {@code decode} path as a reload, with the loader's lookups stubbed by {@link Headless}.
+ *
+ * <p>Run with {@code ./gradlew jmh}; pick sizes with {@code -PjmhFiles=1000,10000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SupplierLoaderBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int files;
+
+    @Param({"4", "16"})
+    public int entriesPerFile;
+
+    private final List<String> paths = new ArrayList<>();
+    private final List<String> jsons = new ArrayList<>();
+    private String condition;
+    private String function;
+    private SupplierLoader.Lookups lookups;
+    private SupplierLoader warmLoader;
+    private SupplierRoutes routes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Headless.bootstrap();
+        lookups = Headless.lookups();
+        routes = SupplierRoutes.compile(ResourceManager.Empty.INSTANCE);
+
+        SyntheticSupplierGenerator generator = new SyntheticSupplierGenerator(42);
+        for (int i = 0; i < files; i++) {
+            paths.add(generator.path(i));
+            jsons.add(generator.generate(i, entriesPerFile));
+        }
+
+        // Serialized the way readDefinitions stores conditions and functions
+        condition = "{\"type\":\"random_chance\",\"chance\":0.05}";
+        function = "{\"function\":\"minecraft:set_count\",\"count\":2,\"add\":true}";
+
+        // Intern caches already hold the condition and function, as for every repeat within a reload
+        warmLoader = new SupplierLoader(lookups);
+        warmLoader.parseCondition(condition);
+        warmLoader.getFunction(function, ResourceManager.Empty.INSTANCE);
+    }
+
+    /**
+     * Decodes every file of the datapack with the caches of one fresh reload.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void decodeDatapack(Blackhole blackhole) throws IOException {
+        SupplierLoader loader = new SupplierLoader(lookups);
+        for (int i = 0; i < files; i++) {
+            ResourceLocation fileLocation = new ResourceLocation("emi_loot_registry", paths.get(i));
+            LootContextParamSet contextType = routes.getContextType(paths.get(i));
+            try (JsonReader reader = new JsonReader(new StringReader(jsons.get(i)))) {
+                for (Map.Entry<ResourceLocation, SupplierLoader.SupplierDefinition> definition : SupplierLoader.readDefinitions(reader, fileLocation).entrySet()) {
+                    blackhole.consume(loader.decode(definition.getValue(), definition.getKey(), contextType, ResourceManager.Empty.INSTANCE, new HashSet<>()));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public TextKey parseConditionCold() {
+        return new SupplierLoader(lookups).parseCondition(condition);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public TextKey parseConditionInterned() {
+        return warmLoader.parseCondition(condition);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Optional<SupplierLoader.ParsedFunction> parseFunctionCold() {
+        return new SupplierLoader(lookups).getFunction(function, ResourceManager.Empty.INSTANCE);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Optional<SupplierLoader.ParsedFunction> parseFunctionInterned() {
+        return warmLoader.getFunction(function, ResourceManager.Empty.INSTANCE);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void resolveContextType(Blackhole blackhole) {
+        for (String path : paths) {
+            blackhole.consume(routes.getContextType(path));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.saloeater.emi_loot_registry;
+
+import com.google.gson.stream.JsonReader;
+import fzzyhmstrs.emi_loot.server.ArchaeologyLootTableSender;
+import fzzyhmstrs.emi_loot.server.BlockLootTableSender;
+import fzzyhmstrs.emi_loot.server.ChestLootTableSender;
+import fzzyhmstrs.emi_loot.server.GameplayLootTableSender;
+import fzzyhmstrs.emi_loot.server.MobLootTableSender;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.ResourceManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing cost of already decoded suppliers into fresh EMI Loot sender maps, serial and with one lane per category.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SupplierProcessorBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int files;
+
+    @Param({"4", "16"})
+    public int entriesPerFile;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private final List<JsonLootDataSupplier> suppliers = new ArrayList<>();
+    private SupplierRoutes routes;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Headless.bootstrap();
+        routes = SupplierRoutes.compile(ResourceManager.Empty.INSTANCE);
+
+        SyntheticSupplierGenerator generator = new SyntheticSupplierGenerator(42);
+        SupplierLoader loader = new SupplierLoader(Headless.lookups());
+        for (int i = 0; i < files; i++) {
+            String path = generator.path(i);
+            try (JsonReader reader = new JsonReader(new StringReader(generator.generate(i, entriesPerFile)))) {
+                SupplierLoader.readDefinitions(reader, new ResourceLocation("emi_loot_registry", path)).forEach((sourceId, definition) ->
+                    suppliers.add(loader.decode(definition, sourceId, routes.getContextType(path), ResourceManager.Empty.INSTANCE, new HashSet<>())));
+            }
+        }
+    }
+
+    @Benchmark
+    public void processSuppliers(Blackhole blackhole) {
+        Map<ResourceLocation, ChestLootTableSender> chestSenders = new HashMap<>();
+        Map<ResourceLocation, BlockLootTableSender> blockSenders = new HashMap<>();
+        Map<ResourceLocation, MobLootTableSender> mobSenders = new HashMap<>();
+        Map<ResourceLocation, GameplayLootTableSender> gameplaySenders = new HashMap<>();
+        Map<ResourceLocation, ArchaeologyLootTableSender> archaeologySenders = new HashMap<>();
+
+        SupplierProcessor.processSuppliers(suppliers, routes, parallel, chestSenders, blockSenders, mobSenders, gameplaySenders, archaeologySenders);
+
+        blackhole.consume(chestSenders);
+        blackhole.consume(blockSenders);
+        blackhole.consume(mobSenders);
+        blackhole.consume(gameplaySenders);
+        blackhole.consume(archaeologySenders);
+    }
+}
@@ -0,0 +1,40 @@
+package com.saloeater.emi_loot_registry;
+
+import fzzyhmstrs.emi_loot.parser.LootTableParser;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A LootDataSupplier that computes its entries asynchronously.
+ *
+ * <p>Suppliers created by an {@link AsyncLootDataSupplierType} are started at the beginning of
+ * a datapack reload, so their work overlaps with vanilla loot table parsing. They are joined
+ * right before routing; if they fail or take longer than the configured timeout,
+ * {@link #getFallbackEntries()} is used instead.
+ */
+public interface AsyncLootDataSupplier extends LootDataSupplier {
+    /**
+     * Starts computing the entries.
+     *
+     * @param executor Background executor the work may be scheduled on
+     * @return Future completing with the item entries
+     */
+    CompletableFuture<List<LootTableParser.ItemEntryResult>> getEntriesAsync(Executor executor);
+
+    /**
+     * @return Entries to use when the async computation fails or times out. Empty by default.
+     */
+    default List<LootTableParser.ItemEntryResult> getFallbackEntries() {
+        return List.of();
+    }
+
+    /**
+     * Computes the entries synchronously on the calling thread.
+     */
+    @Override
+    default List<LootTableParser.ItemEntryResult> getEntries() {
+        return getEntriesAsync(Runnable::run).join();
+    }
+}
@@ -0,0 +1,10 @@
+package com.saloeater.emi_loot_registry;
+
+/**
+ * Registry type for {@link AsyncLootDataSupplier}s.
+ *
+ * <p>Unlike other types, {@link #create()} is called on a worker thread at the start of the
+ * reload, and the supplier's {@link AsyncLootDataSupplier#getEntriesAsync} is started right away.
+ */
+public interface AsyncLootDataSupplierType<T extends AsyncLootDataSupplier> extends LootDataSupplierType<T> {
+}
@@ -2,7 +2,9 @@ package com.saloeater.emi_loot_registry;
 
 import com.mojang.logging.LogUtils;
 import net.minecraftforge.eventbus.api.IEventBus;
+import net.minecraftforge.fml.ModLoadingContext;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.config.ModConfig;
 import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
 import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
 import net.minecraftforge.registries.DeferredRegister;
@@ -40,8 +42,17 @@ public class EmiLootRegistry {
         // Initialize registry reference after common setup
         modBus.addListener(this::commonSetup);
 
+        // Compile supplier bundles during data generation
+        modBus.addListener(SupplierCompiler::gatherData);
+
+        // Register common config
+        ModLoadingContext.get().registerConfig(ModConfig.Type.COMMON, EmiLootRegistryConfig.SPEC);
+
         // Register datapack reload listener
         net.minecraftforge.common.MinecraftForge.EVENT_BUS.addListener(this::addReloadListeners);
+
+        // Register the stats command
+        net.minecraftforge.common.MinecraftForge.EVENT_BUS.addListener(this::registerCommands);
     }
 
     /**
@@ -83,4 +94,11 @@ public class EmiLootRegistry {
         event.addListener(new SupplierLoader());
         LOGGER.info("Registered SupplierLoader for datapack reloading");
     }
+
+    /**
+     * Register the /emi_loot_registry command.
+     */
+    private void registerCommands(net.minecraftforge.event.RegisterCommandsEvent event) {
+        SupplierCommands.register(event.getDispatcher());
+    }
 }
@@ -0,0 +1,72 @@
+package com.saloeater.emi_loot_registry;
+
+import net.minecraftforge.common.ForgeConfigSpec;
+
+/**
+ * Common configuration for EMI Loot Registry.
+ * Registered from the mod constructor and stored in config/emi_loot_registry-common.toml.
+ */
+public class EmiLootRegistryConfig {
+    public static final ForgeConfigSpec SPEC;
+
+    /**
+     * Reuse suppliers from the previous reload for files whose content did not change.
+     */
+    public static final ForgeConfigSpec.BooleanValue INCREMENTAL_RELOAD;
+
+    /**
+     * Persist decoded suppliers to disk so a cold boot with the same datapacks can skip decoding.
+     */
+    public static final ForgeConfigSpec.BooleanValue PERSISTENT_CACHE;
+
+    /**
+     * How long routing waits for all async suppliers together before using fallback entries.
+     */
+    public static final ForgeConfigSpec.IntValue ASYNC_SUPPLIER_TIMEOUT;
+
+    /**
+     * How much supplier data is kept in memory after routing.
+     */
+    public static final ForgeConfigSpec.EnumValue<SupplierRetention> SUPPLIER_RETENTION;
+
+    /**
+     * Route each sender category on its own worker thread.
+     */
+    public static final ForgeConfigSpec.BooleanValue PARALLEL_ROUTING;
+
+    static {
+        ForgeConfigSpec.Builder builder = new ForgeConfigSpec.Builder();
+
+        builder.push("loading");
+        INCREMENTAL_RELOAD = builder
+            .comment("Keep a content hash per supplier file and only re-decode files that were added or changed since the last reload.",
+                     "Trades a copy of the decoded suppliers kept in memory for faster reloads.")
+            .define("incrementalReload", false);
+        PERSISTENT_CACHE = builder
+            .comment("Write decoded suppliers to config/emi_loot_registry/supplier_cache.bin, keyed by the active datapack set and mod list.",
+                     "On startup with unchanged packs and mods, supplier files are only hashed and their decoded form is read back from the cache.")
+            .define("persistentCache", false);
+        builder.pop();
+
+        builder.push("suppliers");
+        ASYNC_SUPPLIER_TIMEOUT = builder
+            .comment("Seconds to wait for async loot data suppliers before falling back to their fallback entries.",
+                     "All async suppliers of a reload share this budget, so hung suppliers never stall the server longer than this.",
+                     "The wait blocks the server thread, so the limit stays well below the 60 second watchdog.")
+            .defineInRange("asyncSupplierTimeoutSeconds", 30, 1, 45);
+        SUPPLIER_RETENTION = builder
+            .comment("Supplier data kept after it was routed to EMI Loot, until the next reload.",
+                     "NONE keeps no index, so table, item and mob lookups return nothing,",
+                     "SUMMARY keeps the table/item/mob index without entries,",
+                     "FULL keeps the JSON suppliers and all merged entries for tooling.",
+                     "When EMI Loot's config changes, datapack suppliers are routed again right away with FULL or incrementalReload, otherwise on the next /reload.")
+            .defineEnum("retention", SupplierRetention.SUMMARY);
+        PARALLEL_ROUTING = builder
+            .comment("Route chest, block, mob, gameplay and archaeology suppliers in parallel, one lane per EMI Loot sender map.",
+                     "Categories holding suppliers of non-thread-safe registry types are still routed on the server thread.")
+            .define("parallelRouting", false);
+        builder.pop();
+
+        SPEC = builder.build();
+    }
+}
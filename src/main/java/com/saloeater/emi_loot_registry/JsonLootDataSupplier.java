@@ -1,28 +1,52 @@
 package com.saloeater.emi_loot_registry;
 
 import fzzyhmstrs.emi_loot.parser.LootTableParser;
+import fzzyhmstrs.emi_loot.util.TextKey;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.storage.loot.parameters.LootContextParamSet;
 
-import java.util.LinkedList;
 import java.util.List;
 
 /**
  * A LootDataSupplier created from JSON file data.
  * This allows datapacks to define suppliers without writing Java code.
+ *
+ * <p>Entries are stored in an immutable, array-backed list, and entries without
+ * conditions or functions share the empty list singleton.
  */
 public class JsonLootDataSupplier implements LootDataSupplier {
     private final ResourceLocation lootTableId;
     private final LootContextParamSet contextType;
     private final List<LootTableParser.ItemEntryResult> entries;
     private final ResourceLocation mobId;
+    private final String poolName;
+    private final ResourceLocation sourceId;
 
     public JsonLootDataSupplier(ResourceLocation lootTableId, LootContextParamSet contextType, List<LootTableParser.ItemEntryResult> entries, ResourceLocation mobId) {
+        this(lootTableId, contextType, entries, mobId, null);
+    }
+
+    public JsonLootDataSupplier(ResourceLocation lootTableId, LootContextParamSet contextType, List<LootTableParser.ItemEntryResult> entries, ResourceLocation mobId, String poolName) {
+        this(lootTableId, contextType, entries, mobId, poolName, null);
+    }
+
+    public JsonLootDataSupplier(ResourceLocation lootTableId, LootContextParamSet contextType, List<LootTableParser.ItemEntryResult> entries, ResourceLocation mobId, String poolName, ResourceLocation sourceId) {
         this.lootTableId = lootTableId;
         this.contextType = contextType;
-        this.entries = entries;
+        this.entries = List.copyOf(entries);
         this.mobId = mobId;
+        this.poolName = poolName;
+        this.sourceId = sourceId;
+    }
+
+    /**
+     * Compacts a condition or function list for storage in an entry.
+     *
+     * @return The shared empty list when there is nothing to store, otherwise an immutable copy
+     */
+    public static List<TextKey> compact(List<TextKey> keys) {
+        return keys.isEmpty() ? List.of() : List.copyOf(keys);
     }
 
     @Override
@@ -44,4 +68,16 @@ public class JsonLootDataSupplier implements LootDataSupplier {
     public ResourceLocation getMobId() {
         return mobId;
     }
+
+    @Override
+    public String getPoolName() {
+        return poolName;
+    }
+
+    /**
+     * @return The supplier file this supplier was decoded from, or null if it was created in code
+     */
+    public ResourceLocation getSourceId() {
+        return sourceId;
+    }
 }
@@ -0,0 +1,53 @@
+package com.saloeater.emi_loot_registry;
+
+import fzzyhmstrs.emi_loot.parser.LootTableParser;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParamSet;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A LootDataSupplier that declares its table and context type up front
+ * and only computes its entries the first time they are requested.
+ * Suppliers routed to a disabled EMI Loot category never compute them at all.
+ */
+public class LazyLootDataSupplier implements LootDataSupplier {
+    private final ResourceLocation lootTableId;
+    private final LootContextParamSet contextType;
+    private final ResourceLocation mobId;
+    private Supplier<List<LootTableParser.ItemEntryResult>> factory;
+    private List<LootTableParser.ItemEntryResult> entries;
+
+    public LazyLootDataSupplier(ResourceLocation lootTableId, LootContextParamSet contextType, ResourceLocation mobId,
+                                Supplier<List<LootTableParser.ItemEntryResult>> factory) {
+        this.lootTableId = lootTableId;
+        this.contextType = contextType;
+        this.mobId = mobId;
+        this.factory = factory;
+    }
+
+    @Override
+    public ResourceLocation getLootTableId() {
+        return lootTableId;
+    }
+
+    @Override
+    public LootContextParamSet getContextType() {
+        return contextType;
+    }
+
+    @Override
+    public synchronized List<LootTableParser.ItemEntryResult> getEntries() {
+        if (factory != null) {
+            entries = factory.get();
+            factory = null;
+        }
+        return entries;
+    }
+
+    @Override
+    public ResourceLocation getMobId() {
+        return mobId;
+    }
+}
@@ -5,6 +5,7 @@ import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.level.storage.loot.parameters.LootContextParamSet;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Interface for providing synthetic loot data programmatically.
@@ -25,7 +26,7 @@ import java.util.List;
  *         return List.of(
  *             new LootTableParser.ItemEntryResult(
  *                 new ItemStack(Items.DIAMOND), 1,
- *                 new LinkedList<>(), new LinkedList<>()
+ *                 List.of(), List.of()
  *             )
  *         );
  *     }
@@ -51,9 +52,31 @@ public interface LootDataSupplier {
      */
     List<LootTableParser.ItemEntryResult> getEntries();
 
+    /**
+     * Pushes every entry into the sink. This is what routing calls; the default
+     * implementation iterates {@link #getEntries()}.
+     * See {@link StreamingLootDataSupplier} for suppliers that never build the list.
+     *
+     * @param sink Receives the entries, feeding the synthetic loot pool directly
+     */
+    default void forEachEntry(Consumer<LootTableParser.ItemEntryResult> sink) {
+        List<LootTableParser.ItemEntryResult> entries = getEntries();
+        if (entries != null) {
+            entries.forEach(sink);
+        }
+    }
+
     /**
      * @return Optional mob/entity identifier for entity-specific loot.
      *         Can be null if not applicable to this supplier.
      */
     ResourceLocation getMobId();
+
+    /**
+     * @return Optional pool name. Suppliers targeting the same loot table that declare the same
+     *         pool name are merged into one synthetic loot pool; null keeps this supplier in its own pool.
+     */
+    default String getPoolName() {
+        return null;
+    }
 }
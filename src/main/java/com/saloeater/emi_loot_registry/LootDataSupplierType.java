@@ -1,5 +1,12 @@
 package com.saloeater.emi_loot_registry;
 
+import fzzyhmstrs.emi_loot.parser.LootTableParser;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParamSet;
+
+import java.util.List;
+import java.util.function.Supplier;
+
 /**
  * Registry type wrapping LootDataSupplier factories.
  * Follows the same pattern as LootConditionType and LootFunctionType.
@@ -15,4 +22,43 @@ public interface LootDataSupplierType<T extends LootDataSupplier> {
      * @return A new supplier instance
      */
     T create();
+
+    /**
+     * @return The context type of the suppliers this type creates, if known up front.
+     *         When the matching EMI Loot category is disabled, {@link #create()} is never called.
+     *         Null means the type is always created and routed by its supplier's context type.
+     */
+    default LootContextParamSet getContextType() {
+        return null;
+    }
+
+    /**
+     * @return Whether {@link #create()} and the created supplier's {@link LootDataSupplier#getEntries()}
+     *         may run on a worker thread, concurrently with other thread-safe types.
+     *         Defaults to false, which keeps both calls on the server thread.
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Creates a type whose table and context are declared up front and whose entries are only
+     * computed when routing actually needs them.
+     *
+     * @param entries Computes the entries; called at most once per created supplier
+     */
+    static LootDataSupplierType<LazyLootDataSupplier> lazy(ResourceLocation lootTableId, LootContextParamSet contextType,
+                                                           ResourceLocation mobId, Supplier<List<LootTableParser.ItemEntryResult>> entries) {
+        return new LootDataSupplierType<>() {
+            @Override
+            public LazyLootDataSupplier create() {
+                return new LazyLootDataSupplier(lootTableId, contextType, mobId, entries);
+            }
+
+            @Override
+            public LootContextParamSet getContextType() {
+                return contextType;
+            }
+        };
+    }
 }
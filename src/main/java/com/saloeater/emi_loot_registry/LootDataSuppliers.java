@@ -1,12 +1,25 @@
 package com.saloeater.emi_loot_registry;
 
 import fzzyhmstrs.emi_loot.EMILoot;
+import fzzyhmstrs.emi_loot.parser.LootTableParser;
 import fzzyhmstrs.emi_loot.server.*;
 import net.minecraft.core.Registry;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParamSet;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
 
 /**
  * Central registry holder for LootDataSupplier types.
@@ -30,6 +43,12 @@ public class LootDataSuppliers {
     private static Map<ResourceLocation, GameplayLootTableSender> gameplaySenders;
     private static Map<ResourceLocation, ArchaeologyLootTableSender> archaeologySenders;
 
+    // JSON suppliers and contributions of the last reload, swapped as a whole when routing finishes
+    private static final AtomicReference<SupplierSnapshot> snapshot = new AtomicReference<>(SupplierSnapshot.EMPTY);
+
+    // Async suppliers started at the beginning of the current reload, joined in loadRegistry
+    private static volatile Map<LootDataSupplierType<?>, PendingSupplier> pendingSuppliers = Map.of();
+
     /**
      * Called by the mixin to process all registered suppliers after vanilla loot tables are parsed.
      * Iterates through the registry and creates suppliers, passing them to the processor for handling.
@@ -49,37 +68,245 @@ public class LootDataSuppliers {
         LootDataSuppliers.archaeologySenders = archaeologySenders;
     }
 
+    /**
+     * @return The result of the last completed reload
+     */
+    public static SupplierSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * @return Generation of the current snapshot, increased by every reload
+     */
+    public static long getGeneration() {
+        return snapshot.get().generation();
+    }
+
+    /**
+     * @return Index of what the suppliers contributed to each loot table in the last reload
+     */
+    public static SupplierIndex getIndex() {
+        return snapshot.get().index();
+    }
+
+    /**
+     * Creates every async supplier and starts computing its entries.
+     * Called from the reload's prepare phase so the work overlaps with vanilla loot table parsing.
+     */
+    public static void launchAsyncSuppliers(SupplierRoutes routes, Executor executor) {
+        if (REGISTRY == null) {
+            return;
+        }
+
+        Map<LootDataSupplierType<?>, PendingSupplier> pending = new HashMap<>();
+        for (LootDataSupplierType<?> supplierType : REGISTRY) {
+            if (supplierType instanceof AsyncLootDataSupplierType<?> asyncType) {
+                LootContextParamSet contextType = asyncType.getContextType();
+                if (contextType != null && !routes.isRouted(contextType)) {
+                    continue;
+                }
+                try {
+                    pending.put(asyncType, launch(asyncType, executor));
+                } catch (Exception e) {
+                    EMILoot.LOGGER.error("Failed to start async loot data supplier " + REGISTRY.getKey(asyncType), e);
+                }
+            }
+        }
+        pendingSuppliers = pending;
+    }
+
+    /**
+     * Routes the registry suppliers again together with the JSON suppliers of the last reload,
+     * using its folders and the current EMI Loot category config.
+     * The JSON suppliers come from the snapshot with {@link SupplierRetention#FULL}, otherwise from the
+     * incremental reload cache. With neither, only registry suppliers are routed and datapack suppliers
+     * need a datapack reload ({@code /reload}) to show up again.
+     * This starts a new {@link SupplierMetrics} run, so the stats then cover this routing only.
+     */
     public static void loadRegistry() {
-        int count = 0;
+        SupplierMetrics.begin();
+        SupplierSnapshot current = snapshot.get();
+        List<JsonLootDataSupplier> jsonSuppliers = current.jsonSuppliers();
+        if (jsonSuppliers.isEmpty()) {
+            jsonSuppliers = SupplierLoader.getCachedSuppliers();
+            if (jsonSuppliers.isEmpty() && !EmiLootRegistryConfig.INCREMENTAL_RELOAD.get()) {
+                EMILoot.LOGGER.warn("Datapack loot data suppliers were released after routing and are only routed again on the next /reload");
+            }
+        }
+        loadRegistry(jsonSuppliers, current.routes().withCurrentConfig());
+    }
 
-        // Process registry-based suppliers
+    /**
+     * Creates the registry suppliers, routes them together with the given JSON suppliers and
+     * publishes the result as the next snapshot.
+     */
+    static void loadRegistry(List<JsonLootDataSupplier> jsonSuppliers, SupplierRoutes routes) {
+        SupplierMetrics metrics = SupplierMetrics.current();
+        long loadStart = System.nanoTime();
+
+        // Keeps registry order: async and thread-safe types are only waited for once everything was started
+        // Each entry gets the shared deadline of the async suppliers
+        List<LongFunction<LootDataSupplier>> created = new ArrayList<>();
+
+        // Create registry-based suppliers
         if (REGISTRY != null) {
             for (LootDataSupplierType<?> supplierType : REGISTRY) {
                 try {
-                    LootDataSupplier supplier = supplierType.create();
-                    // Pass to helper class to process the supplier
-                    SupplierProcessor.processCustomSupplier(supplier, chestSenders, blockSenders, mobSenders, gameplaySenders, archaeologySenders);
-                    count++;
+                    // Types that declare their context up front are not even created for disabled categories
+                    LootContextParamSet contextType = supplierType.getContextType();
+                    if (contextType != null && !routes.isRouted(contextType)) {
+                        if (EMILoot.DEBUG) {
+                            EMILoot.LOGGER.info("Skipping supplier type " + REGISTRY.getKey(supplierType) + " for disabled context type");
+                        }
+                        continue;
+                    }
+
+                    if (supplierType instanceof AsyncLootDataSupplierType<?> asyncType) {
+                        PendingSupplier pending = pendingSuppliers.get(asyncType);
+                        if (pending == null) {
+                            pending = launch(asyncType, ForkJoinPool.commonPool());
+                        }
+                        PendingSupplier started = pending;
+                        created.add(deadline -> await(started, REGISTRY.getKey(asyncType), deadline));
+                    } else if (supplierType.isThreadSafe()) {
+                        CompletableFuture<LootDataSupplier> resolving = CompletableFuture.supplyAsync(() -> resolve(supplierType, routes), ForkJoinPool.commonPool());
+                        created.add(deadline -> resolving.join());
+                    } else {
+                        ResourceLocation typeId = REGISTRY.getKey(supplierType);
+                        long start = System.nanoTime();
+                        LootDataSupplier supplier = supplierType.create();
+                        metrics.recordSupplierType(typeId, System.nanoTime() - start);
+                        RegisteredSupplier registered = supplier != null ? new RegisteredSupplier(typeId, supplier, null) : null;
+                        created.add(deadline -> registered);
+                    }
                 } catch (Exception e) {
-                    EMILoot.LOGGER.error("Failed to create or process loot data supplier", e);
+                    EMILoot.LOGGER.error("Failed to create loot data supplier", e);
                 }
             }
         } else {
             EMILoot.LOGGER.warn("LootDataSuppliers registry not initialized");
         }
 
-        // Process JSON-loaded suppliers from datapacks
-        for (JsonLootDataSupplier supplier : SupplierLoader.getLoadedSuppliers()) {
+        pendingSuppliers = Map.of();
+
+        List<LootDataSupplier> suppliers = new ArrayList<>();
+        // One deadline for all async suppliers, so hung suppliers cannot stall the server for one timeout each
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(EmiLootRegistryConfig.ASYNC_SUPPLIER_TIMEOUT.get());
+        for (LongFunction<LootDataSupplier> supplier : created) {
             try {
-                SupplierProcessor.processCustomSupplier(supplier, chestSenders, blockSenders, mobSenders, gameplaySenders, archaeologySenders);
-                count++;
+                suppliers.add(supplier.apply(deadline));
             } catch (Exception e) {
-                EMILoot.LOGGER.error("Failed to process JSON loot data supplier for " + supplier.getLootTableId(), e);
+                EMILoot.LOGGER.error("Failed to create loot data supplier", e.getCause() != null ? e.getCause() : e);
             }
         }
 
-        if (count > 0 && EMILoot.DEBUG) {
-            EMILoot.LOGGER.info("Processed " + count + " custom loot data suppliers");
+        // Add JSON-loaded suppliers from datapacks
+        suppliers.addAll(jsonSuppliers);
+
+        metrics.recordPhase("load_registry", System.nanoTime() - loadStart);
+
+        // EMI Loot's sender maps are plain HashMaps, so parallel routing gives each map a single lane
+        long routeStart = System.nanoTime();
+        SupplierIndex index = SupplierProcessor.processSuppliers(suppliers, routes, EmiLootRegistryConfig.PARALLEL_ROUTING.get(), chestSenders, blockSenders, mobSenders, gameplaySenders, archaeologySenders);
+        metrics.recordPhase("routing", System.nanoTime() - routeStart);
+
+        // Everything is in EMI Loot's senders now, so only what the retention policy asks for is kept
+        SupplierRetention retention = EmiLootRegistryConfig.SUPPLIER_RETENTION.get();
+        SupplierSnapshot published = snapshot.updateAndGet(previous -> new SupplierSnapshot(previous.generation() + 1,
+            retention == SupplierRetention.FULL ? jsonSuppliers : List.of(), routes, index.retain(retention)));
+
+        if (!suppliers.isEmpty() && EMILoot.DEBUG) {
+            EMILoot.LOGGER.info("Processed " + suppliers.size() + " custom loot data suppliers, generation " + published.generation());
+        }
+    }
+
+    /**
+     * Creates a thread-safe supplier and computes its entries on the calling worker thread.
+     */
+    private static LootDataSupplier resolve(LootDataSupplierType<?> supplierType, SupplierRoutes routes) {
+        ResourceLocation typeId = REGISTRY.getKey(supplierType);
+        long start = System.nanoTime();
+        try {
+            LootDataSupplier supplier = supplierType.create();
+            if (supplier == null) {
+                return null;
+            }
+            if (!routes.isRouted(supplier.getContextType())) {
+                return new RegisteredSupplier(typeId, supplier, null);
+            }
+            return new RegisteredSupplier(typeId, supplier, supplier.getEntries());
+        } finally {
+            SupplierMetrics.current().recordSupplierType(typeId, System.nanoTime() - start);
+        }
+    }
+
+    private static PendingSupplier launch(AsyncLootDataSupplierType<?> supplierType, Executor executor) {
+        AsyncLootDataSupplier supplier = supplierType.create();
+        return new PendingSupplier(supplier, supplier.getEntriesAsync(executor));
+    }
+
+    /**
+     * Waits for an async supplier until the shared deadline, falling back to its fallback entries.
+     */
+    private static LootDataSupplier await(PendingSupplier pending, ResourceLocation typeId, long deadline) {
+        long start = System.nanoTime();
+        List<LootTableParser.ItemEntryResult> entries;
+        try {
+            // Once the deadline has passed, only suppliers that already finished keep their entries
+            entries = pending.entries().get(Math.max(deadline - start, 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            EMILoot.LOGGER.warn("Async loot data supplier " + typeId + " did not finish within "
+                + EmiLootRegistryConfig.ASYNC_SUPPLIER_TIMEOUT.get() + "s, using fallback entries");
+            pending.entries().cancel(true);
+            entries = pending.supplier().getFallbackEntries();
+        } catch (Exception e) {
+            EMILoot.LOGGER.error("Async loot data supplier " + typeId + " failed, using fallback entries", e);
+            entries = pending.supplier().getFallbackEntries();
+        }
+        SupplierMetrics.current().recordSupplierType(typeId, System.nanoTime() - start);
+        return new RegisteredSupplier(typeId, pending.supplier(), entries);
+    }
+
+    private record PendingSupplier(AsyncLootDataSupplier supplier, CompletableFuture<List<LootTableParser.ItemEntryResult>> entries) {
+    }
+
+    /**
+     * A supplier created from a registry type, remembering the type id for metrics.
+     * Entries are non-null when they were already computed off the main thread.
+     */
+    record RegisteredSupplier(ResourceLocation typeId, LootDataSupplier supplier, List<LootTableParser.ItemEntryResult> entries) implements LootDataSupplier {
+        @Override
+        public ResourceLocation getLootTableId() {
+            return supplier.getLootTableId();
+        }
+
+        @Override
+        public LootContextParamSet getContextType() {
+            return supplier.getContextType();
+        }
+
+        @Override
+        public List<LootTableParser.ItemEntryResult> getEntries() {
+            return entries != null ? entries : supplier.getEntries();
+        }
+
+        @Override
+        public void forEachEntry(Consumer<LootTableParser.ItemEntryResult> sink) {
+            if (entries != null) {
+                entries.forEach(sink);
+            } else {
+                supplier.forEachEntry(sink);
+            }
+        }
+
+        @Override
+        public ResourceLocation getMobId() {
+            return supplier.getMobId();
+        }
+
+        @Override
+        public String getPoolName() {
+            return supplier.getPoolName();
         }
     }
 }
@@ -0,0 +1,46 @@
+package com.saloeater.emi_loot_registry;
+
+import fzzyhmstrs.emi_loot.parser.LootTableParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A LootDataSupplier that emits its entries one at a time instead of returning a list.
+ * Routing feeds the emitted entries straight into the synthetic loot pool, so suppliers
+ * enumerating every item of a tag or mod never hold a full copy of their entries.
+ *
+ * <p>Example usage:
+ * <pre>{@code
+ * public class EveryDiscSupplier implements StreamingLootDataSupplier {
+ *     public void emitEntries(Consumer<LootTableParser.ItemEntryResult> sink) {
+ *         BuiltInRegistries.ITEM.getTagOrEmpty(ItemTags.MUSIC_DISCS).forEach(item -> sink.accept(
+ *             new LootTableParser.ItemEntryResult(new ItemStack(item), 1, List.of(), List.of())
+ *         ));
+ *     }
+ *     ...
+ * }
+ * }</pre>
+ */
+public interface StreamingLootDataSupplier extends LootDataSupplier {
+    /**
+     * Emits every entry of this supplier into the sink.
+     */
+    void emitEntries(Consumer<LootTableParser.ItemEntryResult> sink);
+
+    @Override
+    default void forEachEntry(Consumer<LootTableParser.ItemEntryResult> sink) {
+        emitEntries(sink);
+    }
+
+    /**
+     * Collects the emitted entries, for callers that need them as a list.
+     */
+    @Override
+    default List<LootTableParser.ItemEntryResult> getEntries() {
+        List<LootTableParser.ItemEntryResult> entries = new ArrayList<>();
+        emitEntries(entries::add);
+        return entries;
+    }
+}
@@ -0,0 +1,143 @@
+package com.saloeater.emi_loot_registry;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary bundle of supplier definitions written by {@link SupplierCompiler}.
+ *
+ * <p>A bundle replaces a tree of supplier JSON files in a datapack. It is placed anywhere below
+ * {@code data/<namespace>/emi_loot_suppliers/} with the {@code .bin} extension and read in one pass,
+ * without tokenizing any supplier JSON. Every supplier keeps the id of the file it was compiled from,
+ * which also selects its route and which files of other packs it overrides. Items, tags, conditions and functions are stored as written, so they
+ * resolve against the mods and datapacks present when the bundle is loaded. Layout:
+ * <pre>
+ * int magic, varint version, varint stringCount, utf strings,
+ * varint supplierCount, then per supplier in source id order: source id, lootTableId, mobId?, pool?, varint entryCount,
+ * then per entry: item, varint excludeCount, excludes, varint weight, varint conditionCount, conditions, varint functionCount, functions
+ * </pre>
+ * Every id and serialized condition or function is an index into the string table, which holds each distinct
+ * string once; optional strings are stored as index + 1 with 0 for none.
+ */
+public class SupplierBundle {
+    public static final String EXTENSION = ".bin";
+    private static final int MAGIC = 0x454C5242; // "ELRB"
+    private static final int VERSION = 1;
+
+    /**
+     * A supplier definition together with the id of the file it was compiled from.
+     */
+    record Bundled(ResourceLocation sourceId, SupplierLoader.SupplierDefinition definition) {
+    }
+
+    /**
+     * @param suppliers Supplier definitions by source file, written in iteration order
+     */
+    static byte[] write(Map<ResourceLocation, SupplierLoader.SupplierDefinition> suppliers) {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        FriendlyByteBuf records = new FriendlyByteBuf(Unpooled.buffer());
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        try {
+            records.writeVarInt(suppliers.size());
+            suppliers.forEach((sourceId, definition) -> {
+                records.writeVarInt(intern(strings, sourceId.toString()));
+                records.writeVarInt(intern(strings, definition.lootTableId().toString()));
+                records.writeVarInt(definition.mobId() != null ? intern(strings, definition.mobId().toString()) + 1 : 0);
+                records.writeVarInt(definition.poolName() != null ? intern(strings, definition.poolName()) + 1 : 0);
+                records.writeVarInt(definition.entries().size());
+                for (SupplierLoader.EntryDefinition entry : definition.entries()) {
+                    records.writeVarInt(intern(strings, entry.item()));
+                    writeStrings(records, strings, entry.excludes());
+                    records.writeVarInt(entry.weight());
+                    writeStrings(records, strings, entry.conditions());
+                    writeStrings(records, strings, entry.functions());
+                }
+            });
+
+            buf.writeInt(MAGIC);
+            buf.writeVarInt(VERSION);
+            buf.writeVarInt(strings.size());
+            strings.keySet().forEach(buf::writeUtf);
+            buf.writeBytes(records);
+
+            byte[] bytes = new byte[buf.readableBytes()];
+            buf.readBytes(bytes);
+            return bytes;
+        } finally {
+            records.release();
+            buf.release();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException If the bytes are not a bundle of this format version
+     */
+    static List<Bundled> read(byte[] bytes) {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.wrappedBuffer(bytes));
+        if (buf.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a supplier bundle");
+        }
+        int version = buf.readVarInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported supplier bundle version " + version);
+        }
+
+        String[] strings = new String[buf.readVarInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = buf.readUtf();
+        }
+
+        int supplierCount = buf.readVarInt();
+        List<Bundled> suppliers = new ArrayList<>(supplierCount);
+        for (int i = 0; i < supplierCount; i++) {
+            ResourceLocation sourceId = new ResourceLocation(strings[buf.readVarInt()]);
+            ResourceLocation lootTableId = new ResourceLocation(strings[buf.readVarInt()]);
+            int mobId = buf.readVarInt();
+            int poolName = buf.readVarInt();
+
+            int entryCount = buf.readVarInt();
+            List<SupplierLoader.EntryDefinition> entries = new ArrayList<>(entryCount);
+            for (int j = 0; j < entryCount; j++) {
+                String item = strings[buf.readVarInt()];
+                List<String> excludes = readStrings(buf, strings);
+                int weight = buf.readVarInt();
+                List<String> conditions = readStrings(buf, strings);
+                List<String> functions = readStrings(buf, strings);
+                entries.add(new SupplierLoader.EntryDefinition(item, excludes, weight, conditions, functions));
+            }
+
+            suppliers.add(new Bundled(sourceId, new SupplierLoader.SupplierDefinition(lootTableId,
+                mobId > 0 ? new ResourceLocation(strings[mobId - 1]) : null, poolName > 0 ? strings[poolName - 1] : null, entries)));
+        }
+        return suppliers;
+    }
+
+    private static int intern(Map<String, Integer> strings, String value) {
+        return strings.computeIfAbsent(value, key -> strings.size());
+    }
+
+    private static void writeStrings(FriendlyByteBuf buf, Map<String, Integer> strings, List<String> values) {
+        buf.writeVarInt(values.size());
+        for (String value : values) {
+            buf.writeVarInt(intern(strings, value));
+        }
+    }
+
+    private static List<String> readStrings(FriendlyByteBuf buf, String[] strings) {
+        int count = buf.readVarInt();
+        if (count == 0) {
+            return List.of();
+        }
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(strings[buf.readVarInt()]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,223 @@
+package com.saloeater.emi_loot_registry;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.mojang.logging.LogUtils;
+import fzzyhmstrs.emi_loot.parser.LootTableParser;
+import fzzyhmstrs.emi_loot.util.TextKey;
+import io.netty.buffer.Unpooled;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.PackResources;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParamSet;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParamSets;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.forgespi.language.IModInfo;
+import org.slf4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary on-disk cache of decoded JSON suppliers.
+ *
+ * <p>The file holds the decoded form of every supplier file (item ids, weights and resolved
+ * condition/function TextKeys) together with the fingerprint of the JSON it came from.
+ * It is only valid for the datapack set and mod list it was written with; anything else
+ * is discarded on read. Layout:
+ * <pre>
+ * int magic, varint version, byte[] packSetHash, varint fileCount,
+ * then per file: id, packId, byte[] hash, varint supplierCount,
+ * then per supplier: sourceId, lootTableId, contextType, mobId?, pool?, varint entryCount,
+ * then per entry: item id, varint count, nbt?, varint weight, textKeys conditions, textKeys functions
+ * </pre>
+ */
+public class SupplierCache {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final int MAGIC = 0x454C5243; // "ELRC"
+    private static final int VERSION = 3;
+
+    /**
+     * Hashes the active datapack set together with every installed mod and its version.
+     * Decoded items and condition texts depend on the registries of all mods, while their data shares a single
+     * pack id, and TextKey indices come from EMI Loot; any change to the mod list invalidates the cache.
+     */
+    static HashCode hashPackSet(ResourceManager resourceManager) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        hasher.putInt(VERSION);
+        ModList.get().getMods().stream()
+            .sorted(Comparator.comparing(IModInfo::getModId))
+            .forEach(mod -> hasher.putString(mod.getModId(), StandardCharsets.UTF_8).putByte((byte) 0)
+                .putString(mod.getVersion().toString(), StandardCharsets.UTF_8).putByte((byte) 0));
+        resourceManager.listPacks().map(PackResources::packId).forEach(packId -> hasher.putString(packId, StandardCharsets.UTF_8).putByte((byte) 0));
+        return hasher.hash();
+    }
+
+    /**
+     * Reads the cache file and rebuilds the suppliers stored in it.
+     *
+     * @return The cached suppliers by file, or an empty map if the file is missing, outdated or unreadable
+     */
+    static Map<ResourceLocation, SupplierLoader.CachedFile> read(Path path, HashCode packSetHash) {
+        if (!Files.isRegularFile(path)) {
+            return Map.of();
+        }
+
+        try {
+            // Read into the heap rather than mapped, since a live mapping keeps write from replacing the file on Windows
+            FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.wrappedBuffer(Files.readAllBytes(path)));
+
+            if (buf.readInt() != MAGIC || buf.readVarInt() != VERSION) {
+                LOGGER.info("Ignoring supplier cache {} written by a different format version", path);
+                return Map.of();
+            }
+            if (!HashCode.fromBytes(buf.readByteArray()).equals(packSetHash)) {
+                LOGGER.info("Ignoring supplier cache {} written for a different datapack set", path);
+                return Map.of();
+            }
+
+            int fileCount = buf.readVarInt();
+            Map<ResourceLocation, SupplierLoader.CachedFile> suppliers = new HashMap<>(fileCount);
+            // Identical conditions and functions are shared by every supplier read from this file, as on the decode path
+            Map<TextKey, TextKey> textKeys = new HashMap<>();
+            for (int i = 0; i < fileCount; i++) {
+                ResourceLocation fileLocation = buf.readResourceLocation();
+                String packId = buf.readUtf();
+                HashCode hash = HashCode.fromBytes(buf.readByteArray());
+                int supplierCount = buf.readVarInt();
+                List<JsonLootDataSupplier> fileSuppliers = new ArrayList<>(supplierCount);
+                for (int j = 0; j < supplierCount; j++) {
+                    fileSuppliers.add(readSupplier(buf, textKeys));
+                }
+                suppliers.put(fileLocation, new SupplierLoader.CachedFile(packId, hash, List.copyOf(fileSuppliers)));
+            }
+
+            LOGGER.info("Read {} decoded suppliers from cache {}", suppliers.size(), path);
+            return suppliers;
+        } catch (Exception e) {
+            LOGGER.warn("Failed to read supplier cache {}: {}", path, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    /**
+     * Writes the decoded suppliers to the cache file, replacing it atomically.
+     */
+    static void write(Path path, HashCode packSetHash, Map<ResourceLocation, SupplierLoader.CachedFile> suppliers) {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        try {
+            buf.writeInt(MAGIC);
+            buf.writeVarInt(VERSION);
+            buf.writeByteArray(packSetHash.asBytes());
+
+            // Suppliers without a fingerprint depend on more than their file and are never reused
+            Map<ResourceLocation, SupplierLoader.CachedFile> reusable = SupplierLoader.getCacheable(suppliers);
+
+            buf.writeVarInt(reusable.size());
+            reusable.forEach((fileLocation, cached) -> {
+                buf.writeResourceLocation(fileLocation);
+                buf.writeUtf(cached.packId());
+                buf.writeByteArray(cached.hash().asBytes());
+                buf.writeVarInt(cached.suppliers().size());
+                cached.suppliers().forEach(supplier -> writeSupplier(buf, supplier));
+            });
+
+            byte[] bytes = new byte[buf.readableBytes()];
+            buf.readBytes(bytes);
+
+            Files.createDirectories(path.getParent());
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(temp, bytes);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to write supplier cache {}: {}", path, e.getMessage());
+        } finally {
+            buf.release();
+        }
+    }
+
+    private static void writeSupplier(FriendlyByteBuf buf, JsonLootDataSupplier supplier) {
+        buf.writeResourceLocation(supplier.getSourceId());
+        buf.writeResourceLocation(supplier.getLootTableId());
+        buf.writeResourceLocation(LootContextParamSets.getKey(supplier.getContextType()));
+        buf.writeBoolean(supplier.getMobId() != null);
+        if (supplier.getMobId() != null) {
+            buf.writeResourceLocation(supplier.getMobId());
+        }
+        buf.writeBoolean(supplier.getPoolName() != null);
+        if (supplier.getPoolName() != null) {
+            buf.writeUtf(supplier.getPoolName());
+        }
+
+        List<LootTableParser.ItemEntryResult> entries = supplier.getEntries();
+        buf.writeVarInt(entries.size());
+        for (LootTableParser.ItemEntryResult entry : entries) {
+            ItemStack stack = entry.item();
+            // Items are stored by id rather than raw registry index, which can change between boots
+            buf.writeResourceLocation(BuiltInRegistries.ITEM.getKey(stack.getItem()));
+            buf.writeVarInt(stack.getCount());
+            buf.writeNbt(stack.getTag());
+            buf.writeVarInt(entry.weight());
+            writeTextKeys(buf, entry.conditions());
+            writeTextKeys(buf, entry.functions());
+        }
+    }
+
+    private static JsonLootDataSupplier readSupplier(FriendlyByteBuf buf, Map<TextKey, TextKey> textKeys) {
+        ResourceLocation sourceId = buf.readResourceLocation();
+        ResourceLocation lootTableId = buf.readResourceLocation();
+        LootContextParamSet contextType = LootContextParamSets.get(buf.readResourceLocation());
+        ResourceLocation mobId = buf.readBoolean() ? buf.readResourceLocation() : null;
+        String poolName = buf.readBoolean() ? buf.readUtf() : null;
+
+        int entryCount = buf.readVarInt();
+        List<LootTableParser.ItemEntryResult> entries = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            ItemStack stack = new ItemStack(BuiltInRegistries.ITEM.get(buf.readResourceLocation()), buf.readVarInt());
+            stack.setTag(buf.readNbt());
+            int weight = buf.readVarInt();
+            List<TextKey> conditions = JsonLootDataSupplier.compact(readTextKeys(buf, textKeys));
+            List<TextKey> functions = JsonLootDataSupplier.compact(readTextKeys(buf, textKeys));
+            entries.add(new LootTableParser.ItemEntryResult(stack, weight, conditions, functions));
+        }
+
+        return new JsonLootDataSupplier(lootTableId, contextType, entries, mobId, poolName, sourceId);
+    }
+
+    private static void writeTextKeys(FriendlyByteBuf buf, List<TextKey> keys) {
+        buf.writeVarInt(keys.size());
+        for (TextKey key : keys) {
+            buf.writeVarInt(key.index());
+            buf.writeVarInt(key.args().size());
+            key.args().forEach(buf::writeComponent);
+        }
+    }
+
+    private static List<TextKey> readTextKeys(FriendlyByteBuf buf, Map<TextKey, TextKey> textKeys) {
+        int count = buf.readVarInt();
+        List<TextKey> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = buf.readVarInt();
+            int argCount = buf.readVarInt();
+            List<Component> args = new ArrayList<>(argCount);
+            for (int j = 0; j < argCount; j++) {
+                args.add(buf.readComponent());
+            }
+            TextKey key = new TextKey(index, args);
+            keys.add(textKeys.computeIfAbsent(key, k -> k));
+        }
+        return keys;
+    }
+}
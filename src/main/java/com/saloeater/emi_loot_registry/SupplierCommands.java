@@ -0,0 +1,50 @@
+package com.saloeater.emi_loot_registry;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+import net.minecraftforge.fml.loading.FMLPaths;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Server commands for inspecting the supplier pipeline.
+ * <ul>
+ *     <li>{@code /emi_loot_registry stats} prints the metrics of the last reload</li>
+ *     <li>{@code /emi_loot_registry stats dump} writes them to logs/emi_loot_registry_stats.json</li>
+ * </ul>
+ */
+public class SupplierCommands {
+    public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal("emi_loot_registry")
+            .requires(source -> source.hasPermission(2))
+            .then(Commands.literal("stats")
+                .executes(SupplierCommands::printStats)
+                .then(Commands.literal("dump")
+                    .executes(SupplierCommands::dumpStats))));
+    }
+
+    private static int printStats(CommandContext<CommandSourceStack> context) {
+        for (String line : SupplierMetrics.current().report()) {
+            context.getSource().sendSuccess(() -> Component.literal(line), false);
+        }
+        return 1;
+    }
+
+    private static int dumpStats(CommandContext<CommandSourceStack> context) {
+        Path path = FMLPaths.GAMEDIR.get().resolve("logs").resolve("emi_loot_registry_stats.json");
+        try {
+            Files.createDirectories(path.getParent());
+            Files.writeString(path, SupplierMetrics.current().toJson(), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            context.getSource().sendFailure(Component.literal("Failed to write " + path + ": " + e.getMessage()));
+            return 0;
+        }
+        context.getSource().sendSuccess(() -> Component.literal("Wrote supplier stats to " + path), false);
+        return 1;
+    }
+}
@@ -0,0 +1,134 @@
+package com.saloeater.emi_loot_registry;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.stream.JsonReader;
+import com.mojang.logging.LogUtils;
+import net.minecraft.Util;
+import net.minecraft.data.CachedOutput;
+import net.minecraft.data.DataProvider;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.PackType;
+import net.minecraft.server.packs.PathPackResources;
+import net.minecraft.server.packs.resources.MultiPackResourceManager;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParamSet;
+import net.minecraftforge.data.event.GatherDataEvent;
+import org.slf4j.Logger;
+
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Build-time compiler for supplier datapacks, run as a data generator:
+ * <pre>
+ * ./gradlew runData -PsupplierPack=path/to/datapack [-PsupplierOutput=path/to/output]
+ * </pre>
+ * Validates every {@code emi_loot_suppliers/<type>/*.json} and {@code *.ndjson} file of the pack with the same rules
+ * {@link SupplierLoader} uses, plus strict checks for conditions, functions and items that the loader
+ * would only warn about. Any problem fails the run with all of them listed.
+ *
+ * <p>A valid pack is compiled into one {@link SupplierBundle} per namespace at
+ * {@code data/<namespace>/emi_loot_suppliers/compiled.bin} below the output folder, which defaults to the
+ * pack itself. The bundle can be shipped instead of the JSON files. Bundled suppliers override per file like
+ * datapack files do: a higher priority pack's bundle or JSON file wins, and within one pack a JSON file that is
+ * still present takes precedence over its compiled copy.
+ */
+public class SupplierCompiler implements DataProvider {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final String BASE_FOLDER = "emi_loot_suppliers";
+
+    private final Path pack;
+    private final Path output;
+
+    public SupplierCompiler(Path pack, Path output) {
+        this.pack = pack;
+        this.output = output;
+    }
+
+    /**
+     * Adds the compiler when a pack to compile is set with the {@code emi_loot_registry.compile.pack} property.
+     */
+    static void gatherData(GatherDataEvent event) {
+        String pack = System.getProperty("emi_loot_registry.compile.pack", "");
+        if (pack.isEmpty()) {
+            return;
+        }
+        String output = System.getProperty("emi_loot_registry.compile.output", "");
+        Path packPath = Path.of(pack).toAbsolutePath();
+        event.getGenerator().addProvider(event.includeServer(),
+            new SupplierCompiler(packPath, output.isEmpty() ? packPath : Path.of(output).toAbsolutePath()));
+    }
+
+    @Override
+    public CompletableFuture<?> run(CachedOutput cache) {
+        return CompletableFuture.runAsync(() -> compile(cache), Util.backgroundExecutor());
+    }
+
+    private void compile(CachedOutput cache) {
+        if (!Files.isDirectory(pack)) {
+            throw new IllegalStateException("Supplier pack " + pack + " is not a directory");
+        }
+
+        List<String> errors = new ArrayList<>();
+        // Files are read in sorted order, so the same pack always compiles to the same bytes
+        Map<String, Map<ResourceLocation, SupplierLoader.SupplierDefinition>> namespaces = new TreeMap<>();
+        try (MultiPackResourceManager resourceManager = new MultiPackResourceManager(PackType.SERVER_DATA,
+                List.of(new PathPackResources(pack.getFileName().toString(), pack, false)))) {
+            SupplierRoutes routes = SupplierRoutes.compile(resourceManager);
+            SupplierLoader loader = new SupplierLoader();
+
+            Map<ResourceLocation, Resource> files = new TreeMap<>(resourceManager.listResources(BASE_FOLDER, SupplierLoader::isSupplierFile));
+            for (Map.Entry<ResourceLocation, Resource> file : files.entrySet()) {
+                ResourceLocation fileLocation = file.getKey();
+                LootContextParamSet contextType = routes.getContextType(fileLocation.getPath());
+                if (contextType == null) {
+                    errors.add(fileLocation + ": folder has no supplier route");
+                    continue;
+                }
+
+                try (Reader reader = file.getValue().openAsReader();
+                     JsonReader jsonReader = new JsonReader(reader)) {
+                    Map<ResourceLocation, SupplierLoader.SupplierDefinition> definitions = SupplierLoader.readDefinitions(jsonReader, fileLocation);
+                    definitions.forEach((sourceId, definition) -> {
+                        try {
+                            loader.validate(definition, resourceManager);
+                        } catch (Exception e) {
+                            errors.add(sourceId + ": " + e.getMessage());
+                        }
+                    });
+                    namespaces.computeIfAbsent(fileLocation.getNamespace(), key -> new LinkedHashMap<>()).putAll(definitions);
+                } catch (Exception e) {
+                    errors.add(fileLocation + ": " + e.getMessage());
+                }
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            errors.forEach(error -> LOGGER.error("Invalid supplier {}", error));
+            throw new IllegalStateException(errors.size() + " invalid suppliers in " + pack + ":\n" + String.join("\n", errors));
+        }
+
+        namespaces.forEach((namespace, suppliers) -> {
+            byte[] bytes = SupplierBundle.write(suppliers);
+            Path path = output.resolve("data").resolve(namespace).resolve(BASE_FOLDER).resolve("compiled" + SupplierBundle.EXTENSION);
+            try {
+                cache.writeIfNeeded(path, bytes, Hashing.sha1().hashBytes(bytes));
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to write supplier bundle " + path, e);
+            }
+            LOGGER.info("Compiled {} suppliers into {} ({} bytes)", suppliers.size(), path, bytes.length);
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "EMI Loot Registry supplier bundles";
+    }
+}
@@ -0,0 +1,140 @@
+package com.saloeater.emi_loot_registry;
+
+import fzzyhmstrs.emi_loot.parser.LootTableParser;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParamSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable index of what the suppliers contributed in the last reload, built while they are routed.
+ * Every lookup is a single hash map access.
+ *
+ * <p>Obtain the current index with {@link LootDataSuppliers#getIndex()}.
+ */
+public final class SupplierIndex {
+    public static final SupplierIndex EMPTY = new SupplierIndex(Map.of(), Map.of(), Map.of());
+
+    private final Map<ResourceLocation, List<Contribution>> byTable;
+    private final Map<ResourceLocation, List<Contribution>> byItem;
+    private final Map<ResourceLocation, List<Contribution>> byMob;
+
+    private SupplierIndex(Map<ResourceLocation, List<Contribution>> byTable,
+                          Map<ResourceLocation, List<Contribution>> byItem,
+                          Map<ResourceLocation, List<Contribution>> byMob) {
+        this.byTable = byTable;
+        this.byItem = byItem;
+        this.byMob = byMob;
+    }
+
+    /**
+     * @return Every loot table that received supplier entries
+     */
+    public Set<ResourceLocation> getTables() {
+        return byTable.keySet();
+    }
+
+    /**
+     * @return The contributions to a loot table, one per context type, or an empty list
+     */
+    public List<Contribution> getTable(ResourceLocation lootTableId) {
+        return byTable.getOrDefault(lootTableId, List.of());
+    }
+
+    /**
+     * @return This index reduced to what the retention policy keeps
+     */
+    SupplierIndex retain(SupplierRetention retention) {
+        return switch (retention) {
+            case FULL -> this;
+            case SUMMARY -> {
+                // Each contribution is listed under its table, items and mob, so it is replaced once for all three
+                Map<Contribution, Contribution> summaries = new IdentityHashMap<>();
+                for (List<Contribution> contributions : byTable.values()) {
+                    for (Contribution contribution : contributions) {
+                        summaries.put(contribution, new Contribution(contribution.lootTableId(), contribution.contextType(),
+                            contribution.sources(), List.of(), contribution.mobId()));
+                    }
+                }
+                yield new SupplierIndex(summarize(byTable, summaries), summarize(byItem, summaries), summarize(byMob, summaries));
+            }
+            case NONE -> EMPTY;
+        };
+    }
+
+    private static Map<ResourceLocation, List<Contribution>> summarize(Map<ResourceLocation, List<Contribution>> map,
+                                                                       Map<Contribution, Contribution> summaries) {
+        Map<ResourceLocation, List<Contribution>> summarized = new HashMap<>(map.size());
+        map.forEach((key, contributions) -> summarized.put(key, contributions.stream().map(summaries::get).toList()));
+        return Map.copyOf(summarized);
+    }
+
+    /**
+     * @return The contributions that add the item, i.e. "what adds item X to which tables"
+     */
+    public List<Contribution> getTablesWithItem(ResourceLocation itemId) {
+        return byItem.getOrDefault(itemId, List.of());
+    }
+
+    /**
+     * @return The contributions to entity loot tables of the mob
+     */
+    public List<Contribution> getTablesForMob(ResourceLocation mobId) {
+        return byMob.getOrDefault(mobId, List.of());
+    }
+
+    /**
+     * What all suppliers together added to one loot table.
+     *
+     * @param sources Supplier files and registry keys of the suppliers that added entries
+     * @param entries Merged entries as they were sent to EMI Loot
+     * @param mobId Mob of an entity loot table, otherwise null
+     */
+    public record Contribution(
+        ResourceLocation lootTableId,
+        LootContextParamSet contextType,
+        List<ResourceLocation> sources,
+        List<LootTableParser.ItemEntryResult> entries,
+        ResourceLocation mobId
+    ) {}
+
+    static class Builder {
+        private final Map<ResourceLocation, List<Contribution>> byTable = new LinkedHashMap<>();
+        private final Map<ResourceLocation, List<Contribution>> byItem = new HashMap<>();
+        private final Map<ResourceLocation, List<Contribution>> byMob = new HashMap<>();
+
+        void add(Contribution contribution) {
+            byTable.computeIfAbsent(contribution.lootTableId(), key -> new ArrayList<>()).add(contribution);
+
+            Set<ResourceLocation> items = new LinkedHashSet<>();
+            for (LootTableParser.ItemEntryResult entry : contribution.entries()) {
+                items.add(BuiltInRegistries.ITEM.getKey(entry.item().getItem()));
+            }
+            for (ResourceLocation item : items) {
+                byItem.computeIfAbsent(item, key -> new ArrayList<>()).add(contribution);
+            }
+
+            if (contribution.mobId() != null) {
+                byMob.computeIfAbsent(contribution.mobId(), key -> new ArrayList<>()).add(contribution);
+            }
+        }
+
+        SupplierIndex build() {
+            return new SupplierIndex(freeze(byTable), freeze(byItem), freeze(byMob));
+        }
+
+        private static Map<ResourceLocation, List<Contribution>> freeze(Map<ResourceLocation, List<Contribution>> map) {
+            Map<ResourceLocation, List<Contribution>> frozen = new HashMap<>(map.size());
+            map.forEach((key, contributions) -> frozen.put(key, List.copyOf(contributions)));
+            return Map.copyOf(frozen);
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.saloeater.emi_loot_registry;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.CountingInputStream;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.mojang.logging.LogUtils;
 import fzzyhmstrs.emi_loot.mixins.SetCountLootFunctionAccessor;
 import fzzyhmstrs.emi_loot.parser.LocationPredicateParser;
@@ -12,170 +17,667 @@ import fzzyhmstrs.emi_loot.parser.condition.WeatherCheckConditionParser;
 import fzzyhmstrs.emi_loot.parser.processor.NumberProcessors;
 import fzzyhmstrs.emi_loot.util.TextKey;
 import net.minecraft.advancements.critereon.LocationPredicate;
+import net.minecraft.Util;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.Resource;
 import net.minecraft.server.packs.resources.ResourceManager;
 import net.minecraft.server.packs.resources.SimplePreparableReloadListener;
+import net.minecraft.tags.TagLoader;
+import net.minecraft.tags.TagManager;
 import net.minecraft.util.profiling.ProfilerFiller;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
 import net.minecraft.world.level.storage.loot.LootDataType;
 import net.minecraft.world.level.storage.loot.parameters.LootContextParamSet;
-import net.minecraft.world.level.storage.loot.parameters.LootContextParamSets;
 import net.minecraft.world.level.storage.loot.predicates.WeatherCheck;
+import net.minecraftforge.fml.loading.FMLPaths;
 import org.slf4j.Logger;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Loads LootDataSuppliers from JSON files in datapacks.
  * JSON files should be located at: data/<namespace>/emi_loot_suppliers/<type>/<name>.json
- * where <type> is one of: chests, blocks, entities, gameplay, archaeology
+ * where <type> is one of: chests, blocks, entities, gameplay, archaeology,
+ * or a folder added through {@link SupplierRoutes}
+ *
+ * <p>Suppliers for the same loot table that set the same optional {@code "pool"} name
+ * are merged into one loot pool instead of adding a pool each.
+ *
+ * <p>An entry's {@code "item"} may name an item tag as {@code "#namespace:tag"}, optionally with an
+ * {@code "exclude"} array of items and tags. The entry is expanded into one entry per item, each with
+ * the entry's weight and sharing its conditions and functions.
+ *
+ * <p>A file may also hold several suppliers, as a JSON array or as NDJSON with one supplier per line
+ * in a {@code .ndjson} file, so large packs need far fewer resources to be opened.
+ *
+ * <p>Suppliers may also come precompiled in a {@link SupplierBundle} built by {@link SupplierCompiler}.
+ *
+ * <p>Files are read and fully decoded in {@link #prepare} on the background workers;
+ * {@link #apply} only swaps the finished suppliers in and routes them.
  */
-public class SupplierLoader extends SimplePreparableReloadListener<Map<ResourceLocation, JsonObject>> {
+public class SupplierLoader extends SimplePreparableReloadListener<SupplierLoader.Prepared> {
     private static final Logger LOGGER = LogUtils.getLogger();
-    private static final Gson GSON = new Gson();
     private static final String BASE_FOLDER = "emi_loot_suppliers";
+    private static final String NDJSON = ".ndjson";
 
-    // Stores JSON-loaded suppliers separately from registry
-    private static final List<JsonLootDataSupplier> loadedSuppliers = new ArrayList<>();
+    // Decoded suppliers from the previous reload, keyed by file, for incremental reloads
+    private static volatile Map<ResourceLocation, CachedFile> supplierCache = Map.of();
+    // Pack set the cache file on disk currently matches, null until it was read or written
+    private static volatile HashCode cachedPackSetHash;
 
+    // Decoded conditions and functions by their serialized JSON. A new loader is created for every
+    // reload, so these only live as long as one reload
+    private final Map<String, Optional<TextKey>> conditionCache = new ConcurrentHashMap<>();
+    private final Map<String, Optional<ParsedFunction>> functionCache = new ConcurrentHashMap<>();
+
+    // Item tags of the reloading datapacks, loaded on first use and shared by every supplier of this reload
+    private volatile Map<ResourceLocation, List<Item>> itemTags;
+
+    private final Lookups lookups;
+
+    public SupplierLoader() {
+        this(Lookups.GAME);
+    }
+
+    /**
+     * @param lookups Registry and loot function access, stubbed by the benchmarks
+     */
+    SupplierLoader(Lookups lookups) {
+        this.lookups = lookups;
+    }
+
+    /**
+     * @return The JSON suppliers of the current snapshot, empty unless the retention policy is {@link SupplierRetention#FULL}
+     * @see LootDataSuppliers#getSnapshot()
+     */
     public static List<JsonLootDataSupplier> getLoadedSuppliers() {
-        return loadedSuppliers;
+        return LootDataSuppliers.getSnapshot().jsonSuppliers();
+    }
+
+    /**
+     * @return The JSON suppliers of the last reload in source id order, kept by the incremental reload cache, or an empty list if it is off
+     */
+    static List<JsonLootDataSupplier> getCachedSuppliers() {
+        List<JsonLootDataSupplier> suppliers = new ArrayList<>();
+        new TreeMap<>(supplierCache).values().forEach(cached -> suppliers.addAll(cached.suppliers()));
+        return suppliers;
     }
 
     @Override
-    protected Map<ResourceLocation, JsonObject> prepare(ResourceManager resourceManager, ProfilerFiller profiler) {
-        Map<ResourceLocation, JsonObject> suppliers = new java.util.HashMap<>();
-
-        // Scan for JSON files in all type folders
-        for (String type : new String[]{"chests", "blocks", "entities", "gameplay", "archaeology"}) {
-            String folder = BASE_FOLDER + "/" + type;
-            resourceManager.listResources(folder, path -> path.getPath().endsWith(".json")).forEach((resourceLocation, resource) -> {
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.open()))) {
-                    JsonObject json = GSON.fromJson(reader, JsonObject.class);
-                    suppliers.put(resourceLocation, json);
-                    LOGGER.info("Found supplier JSON: {}", resourceLocation);
-                } catch (Exception e) {
-                    LOGGER.error("Error reading supplier JSON {}: {}", resourceLocation, e.getMessage());
+    protected Prepared prepare(ResourceManager resourceManager, ProfilerFiller profiler) {
+        SupplierMetrics metrics = SupplierMetrics.begin();
+        long prepareStart = System.nanoTime();
+        profiler.push("emi_loot_registry");
+
+        // Routes are compiled once and used for every file and supplier of this reload
+        profiler.push("routes");
+        SupplierRoutes routes = SupplierRoutes.compile(resourceManager);
+
+        // Start async code suppliers first so they run alongside the rest of the reload
+        profiler.popPush("launch_async");
+        LootDataSuppliers.launchAsyncSuppliers(routes, Util.backgroundExecutor());
+        profiler.popPush("list");
+
+        // Scan for JSON files in every routed folder and for compiled bundles, sorted so every run reads them in the same order
+        Map<ResourceLocation, Resource> resources = new TreeMap<>();
+        Set<ResourceLocation> bundleLocations = new TreeSet<>();
+        resourceManager.listResources(BASE_FOLDER, path -> isSupplierFile(path) || path.getPath().endsWith(SupplierBundle.EXTENSION))
+            .forEach((location, resource) -> {
+                if (location.getPath().endsWith(SupplierBundle.EXTENSION)) {
+                    bundleLocations.add(location);
+                } else if (routes.getContextType(location.getPath()) != null) {
+                    resources.put(location, resource);
                 }
             });
+        profiler.popPush("bundles");
+        List<BundledFile> bundled = readBundles(bundleLocations, resourceManager, resources);
+        profiler.popPush("decode");
+
+        // Both the in-memory and the on-disk cache need per-file fingerprints
+        boolean incremental = EmiLootRegistryConfig.INCREMENTAL_RELOAD.get();
+        boolean persistent = EmiLootRegistryConfig.PERSISTENT_CACHE.get();
+        boolean fingerprint = incremental || persistent;
+        Map<ResourceLocation, CachedFile> previous = incremental ? supplierCache : Map.of();
+        HashCode packSetHash = null;
+        if (persistent) {
+            packSetHash = SupplierCache.hashPackSet(resourceManager);
+            if (previous.isEmpty()) {
+                previous = SupplierCache.read(getCacheFile(), packSetHash);
+                if (!previous.isEmpty()) {
+                    cachedPackSetHash = packSetHash;
+                }
+            }
         }
 
-        return suppliers;
-    }
+        // Read and decode the files in parallel, one batch per worker
+        Map<ResourceLocation, CachedFile> known = previous;
+        Map<ResourceLocation, CachedFile> decoded = new ConcurrentHashMap<>();
+        List<Map.Entry<ResourceLocation, Resource>> files = new ArrayList<>(resources.entrySet());
+        int batchSize = Math.max(1, files.size() / (Runtime.getRuntime().availableProcessors() * 4));
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int start = 0; start < files.size(); start += batchSize) {
+            List<Map.Entry<ResourceLocation, Resource>> batch = files.subList(start, Math.min(start + batchSize, files.size()));
+            batches.add(CompletableFuture.runAsync(() -> batch.forEach(file -> readSupplier(file.getKey(), file.getValue(),
+                routes.getContextType(file.getKey().getPath()), resourceManager, fingerprint, known, decoded)), Util.backgroundExecutor()));
+        }
+        for (BundledFile file : bundled) {
+            batches.add(CompletableFuture.runAsync(() -> decodeBundled(file, routes, resourceManager, decoded), Util.backgroundExecutor()));
+        }
+        CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).join();
+        profiler.popPush("merge");
 
-    @Override
-    protected void apply(Map<ResourceLocation, JsonObject> suppliers, ResourceManager resourceManager, ProfilerFiller profiler) {
-        LOGGER.info("Loading {} supplier JSON files", suppliers.size());
+        // Merge back in source id order, files and bundled suppliers alike, so the output does not depend on thread scheduling
+        List<JsonLootDataSupplier> suppliers = new ArrayList<>(decoded.size());
+        int reused = 0;
+        for (Map.Entry<ResourceLocation, CachedFile> cached : new TreeMap<>(decoded).entrySet()) {
+            suppliers.addAll(cached.getValue().suppliers());
+            if (cached.getValue() == previous.get(cached.getKey())) {
+                reused++;
+            }
+        }
 
-        // Clear previously loaded suppliers
-        loadedSuppliers.clear();
+        // Files that were deleted or failed to decode simply do not make it into the new cache
+        supplierCache = incremental ? Map.copyOf(decoded) : Map.of();
+        if (fingerprint) {
+            LOGGER.info("Reused {} unchanged supplier files, decoded {}", reused, decoded.size() - reused);
+        }
+        // Files using tags are decoded again on every reload and never written, so only the cacheable files decide a rewrite
+        if (persistent && (!packSetHash.equals(cachedPackSetHash) || !getCacheable(decoded).equals(getCacheable(previous)))) {
+            profiler.popPush("write_cache");
+            SupplierCache.write(getCacheFile(), packSetHash, decoded);
+            cachedPackSetHash = packSetHash;
+        }
 
-        suppliers.forEach((fileLocation, json) -> {
-            try {
-                // Infer context type from folder path
-                LootContextParamSet contextType = inferContextType(fileLocation.getPath());
-                JsonLootDataSupplier supplier = parseSupplier(json, contextType, resourceManager);
-                loadedSuppliers.add(supplier);
+        profiler.pop();
+        profiler.pop();
+        metrics.recordPhase("prepare", System.nanoTime() - prepareStart);
+        return new Prepared(List.copyOf(suppliers), routes);
+    }
+
+    /**
+     * Resolved on use rather than at class load, since FML only sets up its paths inside the game.
+     */
+    private static Path getCacheFile() {
+        return FMLPaths.CONFIGDIR.get().resolve("emi_loot_registry").resolve("supplier_cache.bin");
+    }
 
-                String name = fileLocation.getPath().replace(BASE_FOLDER + "/", "").replace(".json", "");
-                LOGGER.info("Loaded supplier '{}' ({}) for loot table {}", name, contextType, supplier.getLootTableId());
+    /**
+     * @return The files that have a fingerprint and can be cached, without tag-based files and bundles
+     */
+    static Map<ResourceLocation, CachedFile> getCacheable(Map<ResourceLocation, CachedFile> files) {
+        Map<ResourceLocation, CachedFile> cacheable = new HashMap<>();
+        files.forEach((location, file) -> {
+            if (file.hash() != null) {
+                cacheable.put(location, file);
+            }
+        });
+        return cacheable;
+    }
+
+    /**
+     * Reads and decodes a single supplier file, which may hold several suppliers. Called concurrently
+     * from the prepare workers. When the file's fingerprint matches the previous reload, the old
+     * suppliers are reused as is.
+     */
+    private void readSupplier(ResourceLocation fileLocation, Resource resource, LootContextParamSet contextType, ResourceManager resourceManager, boolean fingerprint,
+                              Map<ResourceLocation, CachedFile> previous, Map<ResourceLocation, CachedFile> decoded) {
+        SupplierMetrics metrics = SupplierMetrics.current();
+        long start = System.nanoTime();
+        String packId = resource.sourcePackId();
+        byte[] bytes = null;
+        HashCode hash = null;
+        if (fingerprint) {
+            // Fingerprinting needs the whole file, so it is read into memory once and decoded from there
+            try (InputStream stream = resource.open()) {
+                bytes = stream.readAllBytes();
             } catch (Exception e) {
-                LOGGER.error("Error parsing supplier JSON {}: {}", fileLocation, e.getMessage());
+                LOGGER.error("Error reading supplier JSON {}: {}", fileLocation, e.getMessage());
+                metrics.recordFileFailed();
+                return;
             }
+
+            hash = Hashing.murmur3_128().hashBytes(bytes);
+            CachedFile cached = previous.get(fileLocation);
+            // A changed route moves the same file to another context type, which needs a fresh decode
+            if (cached != null && cached.matches(packId, hash) && cached.suppliers().stream().allMatch(supplier -> supplier.getContextType() == contextType)) {
+                decoded.put(fileLocation, cached);
+                metrics.recordFileReused();
+                return;
+            }
+        }
+
+        try (CountingInputStream stream = new CountingInputStream(bytes != null ? new ByteArrayInputStream(bytes) : resource.open());
+             JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)))) {
+            Set<ResourceLocation> usedTags = new HashSet<>();
+            List<JsonLootDataSupplier> suppliers = new ArrayList<>();
+            for (Map.Entry<ResourceLocation, SupplierDefinition> definition : readDefinitions(reader, fileLocation).entrySet()) {
+                suppliers.add(decode(definition.getValue(), definition.getKey(), contextType, resourceManager, usedTags));
+            }
+            // Tag contents come from other files, so suppliers using tags are decoded again on every reload
+            decoded.put(fileLocation, new CachedFile(packId, usedTags.isEmpty() ? hash : null, List.copyOf(suppliers)));
+            metrics.recordFileRead(stream.getCount());
+
+            // Per-file lines are only worth their cost when debugging a pack
+            LOGGER.debug("Loaded {} suppliers from {} ({})", suppliers.size(), fileLocation, contextType);
+        } catch (Exception e) {
+            LOGGER.error("Error parsing supplier JSON {}: {}", fileLocation, e.getMessage());
+            metrics.recordFileFailed();
+        } finally {
+            metrics.recordDecode(fileLocation, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Reads the bundles of every pack, not only the top one per path, and picks for each supplier file the pack
+     * that provides it, as datapacks override files: the highest priority pack among the bundles and the loose
+     * JSON file wins, with the JSON file winning within the same pack. Files a bundle wins are removed from the
+     * JSON files to decode.
+     *
+     * @param files Supplier JSON files of this reload, by file
+     * @return The bundled files to decode, in file order
+     */
+    private List<BundledFile> readBundles(Set<ResourceLocation> bundleLocations, ResourceManager resourceManager, Map<ResourceLocation, Resource> files) {
+        if (bundleLocations.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Integer> priorities = new HashMap<>();
+        resourceManager.listPacks().forEach(pack -> priorities.putIfAbsent(pack.packId(), priorities.size()));
+
+        List<CompletableFuture<List<BundledFile>>> reads = new ArrayList<>();
+        for (ResourceLocation bundleLocation : bundleLocations) {
+            for (Resource resource : resourceManager.getResourceStack(bundleLocation)) {
+                int priority = priorities.getOrDefault(resource.sourcePackId(), -1);
+                reads.add(CompletableFuture.supplyAsync(() -> readBundle(bundleLocation, resource, priority), Util.backgroundExecutor()));
+            }
+        }
+
+        Map<ResourceLocation, BundledFile> winners = new TreeMap<>();
+        for (CompletableFuture<List<BundledFile>> read : reads) {
+            for (BundledFile file : read.join()) {
+                winners.merge(file.file(), file, (current, candidate) -> candidate.priority() > current.priority() ? candidate : current);
+            }
+        }
+        winners.values().removeIf(file -> {
+            Resource json = files.get(file.file());
+            return json != null && priorities.getOrDefault(json.sourcePackId(), -1) >= file.priority();
         });
+        winners.keySet().forEach(files::remove);
+        return List.copyOf(winners.values());
+    }
 
-        LootDataSuppliers.loadRegistry();
+    /**
+     * Reads one compiled bundle and groups its suppliers by the file they were compiled from. Called concurrently from the prepare workers.
+     */
+    private static List<BundledFile> readBundle(ResourceLocation bundleLocation, Resource resource, int priority) {
+        SupplierMetrics metrics = SupplierMetrics.current();
+        List<SupplierBundle.Bundled> bundled;
+        try (InputStream stream = resource.open()) {
+            byte[] bytes = stream.readAllBytes();
+            bundled = SupplierBundle.read(bytes);
+            metrics.recordFileRead(bytes.length);
+        } catch (Exception e) {
+            LOGGER.error("Error reading supplier bundle {} from {}: {}", bundleLocation, resource.sourcePackId(), e.getMessage());
+            metrics.recordFileFailed();
+            return List.of();
+        }
 
-        LOGGER.info("Successfully loaded {} suppliers from datapacks", loadedSuppliers.size());
+        Map<ResourceLocation, List<SupplierBundle.Bundled>> byFile = new LinkedHashMap<>();
+        for (SupplierBundle.Bundled supplier : bundled) {
+            byFile.computeIfAbsent(getFile(supplier.sourceId()), key -> new ArrayList<>()).add(supplier);
+        }
+        List<BundledFile> files = new ArrayList<>(byFile.size());
+        byFile.forEach((file, suppliers) -> files.add(new BundledFile(file, resource.sourcePackId(), priority, suppliers)));
+        LOGGER.debug("Read {} suppliers of {} files from bundle {} in {}", bundled.size(), files.size(), bundleLocation, resource.sourcePackId());
+        return files;
     }
 
-    private JsonLootDataSupplier parseSupplier(JsonObject json, LootContextParamSet contextType, ResourceManager resourceManager) {
-        // Parse loot table ID
-        String lootTableIdStr = json.get("loot_table_id").getAsString();
-        ResourceLocation lootTableId = new ResourceLocation(lootTableIdStr);
+    /**
+     * Decodes the bundled suppliers of one file. Called concurrently from the prepare workers.
+     * Bundled suppliers are never reused from a cache, since decoding them does not touch any JSON.
+     */
+    private void decodeBundled(BundledFile file, SupplierRoutes routes, ResourceManager resourceManager, Map<ResourceLocation, CachedFile> decoded) {
+        long start = System.nanoTime();
+        for (SupplierBundle.Bundled supplier : file.suppliers()) {
+            ResourceLocation sourceId = supplier.sourceId();
+            LootContextParamSet contextType = routes.getContextType(sourceId.getPath());
+            if (contextType == null) {
+                continue;
+            }
+            try {
+                decoded.put(sourceId, new CachedFile(file.packId(), null,
+                    List.of(decode(supplier.definition(), sourceId, contextType, resourceManager, new HashSet<>()))));
+            } catch (Exception e) {
+                LOGGER.error("Error decoding bundled supplier {} from {}: {}", sourceId, file.packId(), e.getMessage());
+            }
+        }
+        SupplierMetrics.current().recordDecode(file.file(), System.nanoTime() - start);
+    }
+
+    @Override
+    protected void apply(Prepared prepared, ResourceManager resourceManager, ProfilerFiller profiler) {
+        long applyStart = System.nanoTime();
+        profiler.push("emi_loot_registry");
+
+        // Everything was decoded during prepare; the new suppliers are published together with
+        // the routing result as one snapshot
+        profiler.push("load_registry");
+        LootDataSuppliers.loadRegistry(prepared.suppliers(), prepared.routes());
+        profiler.pop();
+
+        profiler.pop();
+        SupplierMetrics.current().recordPhase("apply", System.nanoTime() - applyStart);
+        LOGGER.info("Successfully loaded {} suppliers from datapacks", prepared.suppliers().size());
+    }
 
+    /**
+     * @return Whether the resource is a supplier JSON file or a supplier NDJSON file
+     */
+    static boolean isSupplierFile(ResourceLocation location) {
+        return location.getPath().endsWith(".json") || location.getPath().endsWith(NDJSON);
+    }
+
+    /**
+     * Reads every supplier of a file in one sequential pass. A file holds either a single supplier object,
+     * an array of supplier objects, or, with the {@code .ndjson} extension, one supplier object per line.
+     * Suppliers of a multi-supplier file get the id {@code <file>/<index>}, a single supplier keeps the file's id.
+     *
+     * @return Supplier definitions by source id, in file order
+     */
+    static Map<ResourceLocation, SupplierDefinition> readDefinitions(JsonReader reader, ResourceLocation fileLocation) throws IOException {
+        reader.setLenient(true);
+        boolean ndjson = fileLocation.getPath().endsWith(NDJSON);
+        if (!ndjson && reader.peek() != JsonToken.BEGIN_ARRAY) {
+            return Map.of(fileLocation, readDefinition(reader));
+        }
+
+        Map<ResourceLocation, SupplierDefinition> definitions = new LinkedHashMap<>();
+        if (ndjson) {
+            // Lenient readers accept several top-level values, which covers one object per line
+            while (reader.peek() != JsonToken.END_DOCUMENT) {
+                definitions.put(getSourceId(fileLocation, definitions.size()), readDefinition(reader));
+            }
+        } else {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                definitions.put(getSourceId(fileLocation, definitions.size()), readDefinition(reader));
+            }
+            reader.endArray();
+        }
+        return definitions;
+    }
+
+    private static ResourceLocation getSourceId(ResourceLocation fileLocation, int index) {
+        return new ResourceLocation(fileLocation.getNamespace(), fileLocation.getPath() + "/" + index);
+    }
+
+    /**
+     * @return The file a source id belongs to, which is the id itself unless it names a supplier of a multi-supplier file
+     */
+    static ResourceLocation getFile(ResourceLocation sourceId) {
+        String path = sourceId.getPath();
+        int slash = path.lastIndexOf('/');
+        ResourceLocation parent = new ResourceLocation(sourceId.getNamespace(), path.substring(0, Math.max(slash, 0)));
+        return isSupplierFile(parent) ? parent : sourceId;
+    }
+
+    /**
+     * Reads the structure of one supplier object without resolving items, conditions or functions.
+     * Shared by runtime decoding and {@link SupplierCompiler}, so both apply the same rules.
+     */
+    static SupplierDefinition readDefinition(JsonReader reader) throws IOException {
+        ResourceLocation lootTableId = null;
         ResourceLocation mobId = null;
-        if (json.has("mob_id")) {
-            String mobIdStr = json.get("mob_id").getAsString();
-            mobId = new ResourceLocation(mobIdStr);
-        }
-
-        // Parse entries
-        JsonArray entriesArray = json.getAsJsonArray("entries");
-        List<LootTableParser.ItemEntryResult> entries = new LinkedList<>();
-
-        for (int i = 0; i < entriesArray.size(); i++) {
-            JsonObject entryObj = entriesArray.get(i).getAsJsonObject();
-            String itemId = entryObj.get("item").getAsString();
-            int weight = entryObj.has("weight") ? entryObj.get("weight").getAsInt() : 1;
-
-            // Parse conditions if present
-            List<TextKey> conditions = new LinkedList<>();
-            if (entryObj.has("conditions")) {
-                JsonArray conditionsArray = entryObj.getAsJsonArray("conditions");
-                for (JsonElement conditionElement : conditionsArray) {
-                    JsonObject conditionObj = conditionElement.getAsJsonObject();
-                    TextKey conditionKey = parseCondition(conditionObj);
-                    if (conditionKey != null) {
-                        conditions.add(conditionKey);
+        String poolName = null;
+        List<EntryDefinition> entries = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "loot_table_id" -> lootTableId = new ResourceLocation(reader.nextString());
+                case "mob_id" -> mobId = new ResourceLocation(reader.nextString());
+                case "pool" -> poolName = reader.nextString();
+                case "entries" -> {
+                    entries = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        entries.add(readEntry(reader));
                     }
+                    reader.endArray();
                 }
+                default -> reader.skipValue();
             }
+        }
+        reader.endObject();
+
+        if (lootTableId == null) {
+            throw new JsonParseException("Missing loot_table_id");
+        }
+        if (entries == null) {
+            throw new JsonParseException("Missing entries");
+        }
+
+        return new SupplierDefinition(lootTableId, mobId, poolName, entries);
+    }
 
-            ItemStack stack = new ItemStack(net.minecraft.core.registries.BuiltInRegistries.ITEM.get(new ResourceLocation(itemId)));
+    private static EntryDefinition readEntry(JsonReader reader) throws IOException {
+        String itemId = null;
+        List<String> excludes = List.of();
+        int weight = 1;
+        List<String> conditions = List.of();
+        List<String> functions = List.of();
 
-            List<TextKey> functions = new LinkedList<>();
-            if (entryObj.has("functions")) {
-                JsonArray functionsArray = entryObj.getAsJsonArray("functions");
-                for (JsonElement functionElement : functionsArray) {
-                    JsonObject functionObj = functionElement.getAsJsonObject();
-                    TextKey functionKey = parseFunction(functionObj, stack, resourceManager);
-                    if (functionKey != null) {
-                        functions.add(functionKey);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "item" -> itemId = reader.nextString();
+                case "exclude" -> {
+                    excludes = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        excludes.add(reader.nextString());
                     }
+                    reader.endArray();
+                }
+                case "weight" -> weight = reader.nextInt();
+                case "conditions" -> conditions = readObjects(reader);
+                case "functions" -> functions = readObjects(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (itemId == null) {
+            throw new JsonParseException("Entry is missing item");
+        }
+        return new EntryDefinition(itemId, excludes, weight, conditions, functions);
+    }
+
+    /**
+     * Resolves a supplier definition to entries, expanding item tags against the reloading datapacks.
+     */
+    JsonLootDataSupplier decode(SupplierDefinition definition, ResourceLocation sourceId, LootContextParamSet contextType,
+                                ResourceManager resourceManager, Set<ResourceLocation> usedTags) {
+        List<LootTableParser.ItemEntryResult> entries = new ArrayList<>();
+        for (EntryDefinition entry : definition.entries()) {
+            decodeEntry(entry, resourceManager, usedTags, entries);
+        }
+        return new JsonLootDataSupplier(definition.lootTableId(), contextType, entries, definition.mobId(), definition.poolName(), sourceId);
+    }
+
+    /**
+     * Decodes one entry and adds it to the entries, or one entry per item if it names a tag.
+     */
+    private void decodeEntry(EntryDefinition entry, ResourceManager resourceManager, Set<ResourceLocation> usedTags,
+                             List<LootTableParser.ItemEntryResult> entries) {
+        List<TextKey> conditions = new ArrayList<>(entry.conditions().size());
+        for (String condition : entry.conditions()) {
+            TextKey conditionKey = parseCondition(condition);
+            if (conditionKey != null) {
+                conditions.add(conditionKey);
+            }
+        }
+
+        // Conditions and functions are decoded once and shared by every item a tag expands to
+        List<ParsedFunction> parsedFunctions = new ArrayList<>(entry.functions().size());
+        List<TextKey> functionKeys = new ArrayList<>(entry.functions().size());
+        for (String function : entry.functions()) {
+            getFunction(function, resourceManager).ifPresent(parsed -> {
+                parsedFunctions.add(parsed);
+                functionKeys.add(parsed.key());
+            });
+        }
+        List<TextKey> sharedConditions = JsonLootDataSupplier.compact(conditions);
+        List<TextKey> sharedFunctions = JsonLootDataSupplier.compact(functionKeys);
+
+        List<Item> items = resolveItems(entry.item(), resourceManager, usedTags);
+        if (!entry.excludes().isEmpty()) {
+            Set<Item> excluded = new HashSet<>();
+            for (String exclude : entry.excludes()) {
+                excluded.addAll(resolveItems(exclude, resourceManager, usedTags));
+            }
+            items = items.stream().filter(item -> !excluded.contains(item)).toList();
+        }
+
+        for (Item item : items) {
+            ItemStack stack = new ItemStack(item);
+            for (ParsedFunction function : parsedFunctions) {
+                function.apply(stack);
+            }
+            entries.add(new LootTableParser.ItemEntryResult(stack, entry.weight(), sharedConditions, sharedFunctions));
+        }
+    }
+
+    /**
+     * Checks a supplier definition as strictly as the compiler needs: every condition and function must
+     * decode and every plain item id must be registered. Tags are only checked when the supplier is loaded,
+     * since they come from the datapacks active at that point.
+     *
+     * @throws JsonParseException Describing the first problem found
+     */
+    void validate(SupplierDefinition definition, ResourceManager resourceManager) {
+        for (EntryDefinition entry : definition.entries()) {
+            for (String condition : entry.conditions()) {
+                if (parseCondition(condition) == null) {
+                    throw new JsonParseException("Unsupported condition: " + condition);
+                }
+            }
+            for (String function : entry.functions()) {
+                if (getFunction(function, resourceManager).isEmpty()) {
+                    throw new JsonParseException("Unsupported function: " + function);
                 }
             }
+            validateItem(entry.item());
+            entry.excludes().forEach(this::validateItem);
+        }
+    }
 
-            entries.add(new LootTableParser.ItemEntryResult(
-                stack,
-                weight,
-                conditions,
-                functions
-            ));
+    private void validateItem(String id) {
+        if (id.startsWith("#")) {
+            // Only the tag id itself can be checked without the datapacks the bundle ends up in
+            new ResourceLocation(id.substring(1));
+        } else if (lookups.getItem(new ResourceLocation(id)).isEmpty()) {
+            throw new JsonParseException("Unknown item: " + id);
+        }
+    }
+
+    /**
+     * Resolves an item id, or an item tag written as {@code #namespace:tag}, to its items.
+     */
+    private List<Item> resolveItems(String id, ResourceManager resourceManager, Set<ResourceLocation> usedTags) {
+        if (!id.startsWith("#")) {
+            // Unknown items resolve to air, as the item registry's default does
+            return List.of(lookups.getItem(new ResourceLocation(id)).orElse(Items.AIR));
         }
 
-        return new JsonLootDataSupplier(lootTableId, contextType, entries, mobId);
+        ResourceLocation tag = new ResourceLocation(id.substring(1));
+        usedTags.add(tag);
+        List<Item> items = getItemTags(resourceManager).get(tag);
+        if (items == null) {
+            LOGGER.warn("Unknown item tag: {}", tag);
+            return List.of();
+        }
+        return items;
+    }
+
+    /**
+     * Loads the item tags of the reloading datapacks. Registries bind the new tags only after
+     * the reload, so they are read from the resource manager directly, once per reload.
+     */
+    private Map<ResourceLocation, List<Item>> getItemTags(ResourceManager resourceManager) {
+        Map<ResourceLocation, List<Item>> tags = itemTags;
+        if (tags == null) {
+            synchronized (this) {
+                tags = itemTags;
+                if (tags == null) {
+                    TagLoader<Item> loader = new TagLoader<>(lookups::getItem, TagManager.getTagDir(Registries.ITEM));
+                    Map<ResourceLocation, List<Item>> loaded = new HashMap<>();
+                    loader.loadAndBuild(resourceManager).forEach((id, items) -> loaded.put(id, List.copyOf(items)));
+                    tags = Map.copyOf(loaded);
+                    itemTags = tags;
+                }
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * Reads an array of small JSON objects such as conditions or functions, in the serialized
+     * form the intern caches are keyed by.
+     */
+    private static List<String> readObjects(JsonReader reader) throws IOException {
+        List<String> objects = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            objects.add(JsonParser.parseReader(reader).getAsJsonObject().toString());
+        }
+        reader.endArray();
+        return objects;
     }
 
-    private TextKey parseFunction(JsonObject functionObj, ItemStack stack, ResourceManager resourceManager) {
+    /**
+     * Decodes a function in serialized form, which is only parsed again the first time it is seen in this reload.
+     * The decoded function is shared by every identical function JSON in this reload.
+     */
+    Optional<ParsedFunction> getFunction(String functionJson, ResourceManager resourceManager) {
+        return functionCache.computeIfAbsent(functionJson,
+            json -> Optional.ofNullable(decodeFunction(JsonParser.parseString(json).getAsJsonObject(), resourceManager)));
+    }
+
+    private ParsedFunction decodeFunction(JsonObject functionObj, ResourceManager resourceManager) {
         String type = functionObj.get("function").getAsString();
         return switch (type) {
             case "minecraft:set_count" -> {
-                var function = LootDataType.MODIFIER.deserialize(ResourceLocation.parse(""), functionObj, resourceManager);
-                if (function.isEmpty()) {
+                SetCount setCount = lookups.getSetCount(functionObj, resourceManager);
+                if (setCount == null) {
                     LOGGER.warn("Failed to deserialize set_count function: {}", functionObj);
                     yield null;
                 }
-                SetCountLootFunctionAccessor setCountLootFunctionAccessor = (SetCountLootFunctionAccessor) function.get();
-                var provider = setCountLootFunctionAccessor.getCountRange();
-                float rollAvg = NumberProcessors.getRollAvg(provider);
-                boolean add = setCountLootFunctionAccessor.getAdd();
-                String key;
-                if (add) {
-                    stack.setCount(Math.max(stack.getCount() + (int)rollAvg, 1));
-                    key = "emi_loot.function.set_count_add";
-                } else {
-                    stack.setCount(Math.max((int)rollAvg, 1));
-                    key = "emi_loot.function.set_count_set";
-                }
+                String key = setCount.add() ? "emi_loot.function.set_count_add" : "emi_loot.function.set_count_set";
 
-                yield TextKey.of(key);
+                yield new ParsedFunction(TextKey.of(key), setCount.add(), (int) setCount.average());
             }
             default -> {
                 LOGGER.warn("Unknown function type: {}", functionObj);
@@ -185,11 +687,22 @@ public class SupplierLoader extends SimplePreparableReloadListener<Map<ResourceL
     }
 
     /**
-     * Parses a condition JSON object into a TextKey for EMI Loot.
+     * Parses a condition in serialized form into a TextKey for EMI Loot, which is only parsed again the first
+     * time it is seen in this reload. The TextKey is interned, so every identical condition JSON in this reload
+     * shares one instance.
+     */
+    TextKey parseCondition(String conditionJson) {
+        return conditionCache.computeIfAbsent(conditionJson,
+                json -> Optional.ofNullable(decodeCondition(JsonParser.parseString(json).getAsJsonObject())))
+            .orElse(null);
+    }
+
+    /**
+     * Decodes a condition JSON object into a new TextKey.
      * Currently supports:
      * - random_chance: {"type": "random_chance", "chance": 0.5}
      */
-    private TextKey parseCondition(JsonObject conditionObj) {
+    private TextKey decodeCondition(JsonObject conditionObj) {
         String type = conditionObj.get("type").getAsString();
 
         return switch (type) {
@@ -237,22 +750,83 @@ public class SupplierLoader extends SimplePreparableReloadListener<Map<ResourceL
     }
 
     /**
-     * Infers the context type from the file path.
-     * Path format: emi_loot_suppliers/<type>/filename.json
+     * The bundled suppliers of one supplier file, from the bundle of one pack.
+     *
+     * @param priority Position of the pack in the pack order, higher overrides lower
      */
-    private LootContextParamSet inferContextType(String path) {
-        if (path.contains("/chests/")) {
-            return LootContextParamSets.CHEST;
-        } else if (path.contains("/blocks/")) {
-            return LootContextParamSets.BLOCK;
-        } else if (path.contains("/entities/")) {
-            return LootContextParamSets.ENTITY;
-        } else if (path.contains("/gameplay/")) {
-            return LootContextParamSets.FISHING;
-        } else if (path.contains("/archaeology/")) {
-            return LootContextParamSets.ARCHAEOLOGY;
-        } else {
-            throw new IllegalArgumentException("Cannot infer context type from path: " + path);
+    record BundledFile(ResourceLocation file, String packId, int priority, List<SupplierBundle.Bundled> suppliers) {
+    }
+
+    /**
+     * Result of the prepare phase: the decoded suppliers and the routes they were decoded with.
+     */
+    record Prepared(List<JsonLootDataSupplier> suppliers, SupplierRoutes routes) {
+    }
+
+    /**
+     * Structure of one supplier file before items are resolved and conditions and functions decoded.
+     */
+    record SupplierDefinition(ResourceLocation lootTableId, ResourceLocation mobId, String poolName, List<EntryDefinition> entries) {
+    }
+
+    /**
+     * One entry of a supplier definition. Conditions and functions are kept as serialized JSON objects.
+     */
+    record EntryDefinition(String item, List<String> excludes, int weight, List<String> conditions, List<String> functions) {
+    }
+
+    /**
+     * A decoded function: its TextKey plus the count change it applies to the entry's stack.
+     */
+    record ParsedFunction(TextKey key, boolean add, int amount) {
+        TextKey apply(ItemStack stack) {
+            stack.setCount(Math.max(add ? stack.getCount() + amount : amount, 1));
+            return key;
         }
     }
+
+    /**
+     * The decoded suppliers of one file together with the fingerprint of the file.
+     */
+    record CachedFile(String packId, HashCode hash, List<JsonLootDataSupplier> suppliers) {
+        boolean matches(String packId, HashCode hash) {
+            return this.packId.equals(packId) && this.hash != null && this.hash.equals(hash);
+        }
+    }
+
+    /**
+     * The count change of a {@code set_count} function: the average of its count range and whether it adds to the stack.
+     */
+    record SetCount(float average, boolean add) {
+    }
+
+    /**
+     * Registry and loot function access of the decoder. {@link #GAME} reads the live item registry and goes
+     * through EMI Loot's mixin accessor; neither is available in a plain JMH fork, where the benchmarks pass a stub.
+     */
+    interface Lookups {
+        Lookups GAME = new Lookups() {
+            @Override
+            public Optional<Item> getItem(ResourceLocation id) {
+                return BuiltInRegistries.ITEM.getOptional(id);
+            }
+
+            @Override
+            public SetCount getSetCount(JsonObject functionObj, ResourceManager resourceManager) {
+                var function = LootDataType.MODIFIER.deserialize(ResourceLocation.parse(""), functionObj, resourceManager);
+                if (function.isEmpty()) {
+                    return null;
+                }
+                SetCountLootFunctionAccessor setCountLootFunctionAccessor = (SetCountLootFunctionAccessor) function.get();
+                return new SetCount(NumberProcessors.getRollAvg(setCountLootFunctionAccessor.getCountRange()), setCountLootFunctionAccessor.getAdd());
+            }
+        };
+
+        Optional<Item> getItem(ResourceLocation id);
+
+        /**
+         * @return The count change of a {@code set_count} function, or null if it does not deserialize
+         */
+        SetCount getSetCount(JsonObject functionObj, ResourceManager resourceManager);
+    }
 }
@@ -0,0 +1,197 @@
+package com.saloeater.emi_loot_registry;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParamSet;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParamSets;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timers and counters for one run of the supplier pipeline.
+ * A new instance is started at the beginning of every reload and of every routing outside a reload;
+ * all record methods are thread-safe.
+ * Shown by {@code /emi_loot_registry stats}.
+ */
+public class SupplierMetrics {
+    private static final int SLOWEST_COUNT = 10;
+
+    private static volatile SupplierMetrics current = new SupplierMetrics();
+
+    private final long startedAt = System.currentTimeMillis();
+    private final Map<String, Long> phaseNanos = new ConcurrentHashMap<>();
+    private final LongAdder filesRead = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder filesReused = new LongAdder();
+    private final LongAdder filesFailed = new LongAdder();
+    private final LongAdder entriesFolded = new LongAdder();
+    private final Map<String, LongAdder> entriesByContext = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> nanosByNamespace = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> nanosBySupplierType = new ConcurrentHashMap<>();
+    // Slowest supplier files only, the fastest of them on top; registry supplier types are merged in when reporting
+    private final PriorityQueue<Map.Entry<String, Long>> slowestFiles = new PriorityQueue<>(SLOWEST_COUNT + 1, Map.Entry.comparingByValue());
+
+    /**
+     * Starts collecting metrics for a new reload.
+     */
+    public static SupplierMetrics begin() {
+        current = new SupplierMetrics();
+        return current;
+    }
+
+    /**
+     * @return Metrics of the current or most recent reload
+     */
+    public static SupplierMetrics current() {
+        return current;
+    }
+
+    public void recordPhase(String phase, long nanos) {
+        phaseNanos.merge(phase, nanos, Long::sum);
+    }
+
+    public void recordFileRead(long bytes) {
+        filesRead.increment();
+        bytesRead.add(bytes);
+    }
+
+    public void recordFileReused() {
+        filesReused.increment();
+    }
+
+    public void recordFileFailed() {
+        filesFailed.increment();
+    }
+
+    /**
+     * @return Supplier files that were decoded or reused from a cache
+     */
+    public long getFilesLoaded() {
+        return filesRead.sum() + filesReused.sum();
+    }
+
+    public long getFilesFailed() {
+        return filesFailed.sum();
+    }
+
+    /**
+     * Records time spent decoding a supplier file.
+     */
+    public void recordDecode(ResourceLocation file, long nanos) {
+        nanosByNamespace.computeIfAbsent(file.getNamespace(), key -> new LongAdder()).add(nanos);
+        synchronized (slowestFiles) {
+            if (slowestFiles.size() < SLOWEST_COUNT || nanos > slowestFiles.peek().getValue()) {
+                slowestFiles.add(Map.entry(file.toString(), nanos));
+                if (slowestFiles.size() > SLOWEST_COUNT) {
+                    slowestFiles.poll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Records time spent creating a registry supplier or computing its entries.
+     */
+    public void recordSupplierType(ResourceLocation typeId, long nanos) {
+        nanosByNamespace.computeIfAbsent(typeId.getNamespace(), key -> new LongAdder()).add(nanos);
+        nanosBySupplierType.computeIfAbsent(typeId.toString(), key -> new LongAdder()).add(nanos);
+    }
+
+    /**
+     * Records duplicate entries that routing folded into an existing entry of the same pool.
+     */
+    public void recordFolded(int count) {
+        entriesFolded.add(count);
+    }
+
+    public void recordEntries(LootContextParamSet contextType, int count) {
+        ResourceLocation key = LootContextParamSets.getKey(contextType);
+        entriesByContext.computeIfAbsent(String.valueOf(key), k -> new LongAdder()).add(count);
+    }
+
+    /**
+     * @return Human readable summary, one line per item
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("Files: %d read (%d KiB), %d reused, %d failed",
+            filesRead.sum(), bytesRead.sum() / 1024, filesReused.sum(), filesFailed.sum()));
+        phaseNanos.forEach((phase, nanos) -> lines.add(String.format("Phase %s: %.1f ms", phase, millis(nanos))));
+        entriesByContext.forEach((context, count) -> lines.add(String.format("Entries %s: %d", context, count.sum())));
+        lines.add(String.format("Entries folded: %d", entriesFolded.sum()));
+        sorted(nanosByNamespace, Integer.MAX_VALUE).forEach(entry ->
+            lines.add(String.format("Namespace %s: %.1f ms", entry.getKey(), millis(entry.getValue().sum()))));
+        sorted(nanosBySupplierType, Integer.MAX_VALUE).forEach(entry ->
+            lines.add(String.format("Supplier type %s: %.1f ms", entry.getKey(), millis(entry.getValue().sum()))));
+        slowest().forEach(entry ->
+            lines.add(String.format("Slow supplier %s: %.1f ms", entry.getKey(), millis(entry.getValue()))));
+        return lines;
+    }
+
+    /**
+     * @return The same data as {@link #report()} as pretty-printed JSON
+     */
+    public String toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("started_at", startedAt);
+        json.addProperty("files_read", filesRead.sum());
+        json.addProperty("bytes_read", bytesRead.sum());
+        json.addProperty("files_reused", filesReused.sum());
+        json.addProperty("files_failed", filesFailed.sum());
+
+        JsonObject phases = new JsonObject();
+        phaseNanos.forEach((phase, nanos) -> phases.addProperty(phase, millis(nanos)));
+        json.add("phase_ms", phases);
+
+        JsonObject entries = new JsonObject();
+        entriesByContext.forEach((context, count) -> entries.addProperty(context, count.sum()));
+        json.add("entries_by_context", entries);
+        json.addProperty("entries_folded", entriesFolded.sum());
+
+        json.add("namespace_ms", toJson(sorted(nanosByNamespace, Integer.MAX_VALUE)));
+        json.add("supplier_type_ms", toJson(sorted(nanosBySupplierType, Integer.MAX_VALUE)));
+        JsonObject slowest = new JsonObject();
+        slowest().forEach(entry -> slowest.addProperty(entry.getKey(), millis(entry.getValue())));
+        json.add("slowest_ms", slowest);
+
+        return new GsonBuilder().setPrettyPrinting().create().toJson(json);
+    }
+
+    private static JsonObject toJson(List<Map.Entry<String, LongAdder>> timings) {
+        JsonObject json = new JsonObject();
+        timings.forEach(entry -> json.addProperty(entry.getKey(), millis(entry.getValue().sum())));
+        return json;
+    }
+
+    /**
+     * @return The slowest supplier files and registry supplier types, slowest first
+     */
+    private List<Map.Entry<String, Long>> slowest() {
+        List<Map.Entry<String, Long>> sources = new ArrayList<>();
+        synchronized (slowestFiles) {
+            sources.addAll(slowestFiles);
+        }
+        nanosBySupplierType.forEach((typeId, nanos) -> sources.add(Map.entry(typeId, nanos.sum())));
+        sources.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return sources.subList(0, Math.min(sources.size(), SLOWEST_COUNT));
+    }
+
+    private static List<Map.Entry<String, LongAdder>> sorted(Map<String, LongAdder> timings, int limit) {
+        return timings.entrySet().stream()
+            .sorted(Comparator.comparingLong((Map.Entry<String, LongAdder> entry) -> entry.getValue().sum()).reversed())
+            .limit(limit)
+            .toList();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
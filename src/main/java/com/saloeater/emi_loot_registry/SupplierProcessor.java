@@ -3,20 +3,29 @@ package com.saloeater.emi_loot_registry;
 import fzzyhmstrs.emi_loot.EMILoot;
 import fzzyhmstrs.emi_loot.parser.LootTableParser;
 import fzzyhmstrs.emi_loot.server.*;
+import fzzyhmstrs.emi_loot.util.TextKey;
+import net.minecraft.nbt.CompoundTag;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.storage.loot.parameters.LootContextParamSet;
-import net.minecraft.world.level.storage.loot.parameters.LootContextParamSets;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
  * Helper class to process custom loot data suppliers.
  * This is separate from the mixin to avoid mixin restrictions on public static methods.
  */
 public class SupplierProcessor {
-
     /**
      * Process a single custom loot data supplier.
      * Called by LootDataSuppliers and invoked from the mixin.
@@ -31,72 +40,224 @@ public class SupplierProcessor {
     ) {
         if (supplier == null) return;
 
-        try {
-            // Get Forge types from supplier
-            ResourceLocation forgeId = supplier.getLootTableId();
-            LootContextParamSet forgeContextType = supplier.getContextType();
+        processSuppliers(List.of(supplier), chestSenders, blockSenders, mobSenders, gameplaySenders, archaeologySenders);
+    }
+
+    /**
+     * Process a batch of custom loot data suppliers with the folders of the current snapshot
+     * and categories from the current EMI Loot config, so it also routes before the first reload.
+     *
+     * @return Index of what the suppliers contributed to each table
+     */
+    public static SupplierIndex processSuppliers(
+            List<? extends LootDataSupplier> suppliers,
+            Map<ResourceLocation, ChestLootTableSender> chestSenders,
+            Map<ResourceLocation, BlockLootTableSender> blockSenders,
+            Map<ResourceLocation, MobLootTableSender> mobSenders,
+            Map<ResourceLocation, GameplayLootTableSender> gameplaySenders,
+            Map<ResourceLocation, ArchaeologyLootTableSender> archaeologySenders
+    ) {
+        return processSuppliers(suppliers, LootDataSuppliers.getSnapshot().routes().withCurrentConfig(), false, chestSenders, blockSenders, mobSenders, gameplaySenders, archaeologySenders);
+    }
 
-            // Convert ResourceLocation (Forge) to ResourceLocation (Fabric) for EMI Loot compatibility
-            ResourceLocation id = new ResourceLocation(forgeId.getNamespace(), forgeId.getPath());
-            ResourceLocation mobId = supplier.getMobId();
+    /**
+     * Process a batch of custom loot data suppliers.
+     * Suppliers are grouped by loot table and context type first, so each table's sender is
+     * looked up once and suppliers declaring the same pool name share a single builder.
+     *
+     * <p>Tables are then partitioned by sender category into lanes, each of which only touches its own
+     * sender map. In parallel mode the lanes run concurrently on the common pool, so routing takes about
+     * as long as the largest category. A lane holding suppliers that must stay on the calling thread,
+     * i.e. non-thread-safe registry suppliers or suppliers passed in directly, runs on the calling thread.
+     *
+     * @param parallel Whether lanes may run on worker threads
+     * @return Index of what the suppliers contributed to each table
+     */
+    public static SupplierIndex processSuppliers(
+            List<? extends LootDataSupplier> suppliers,
+            SupplierRoutes routes,
+            boolean parallel,
+            Map<ResourceLocation, ChestLootTableSender> chestSenders,
+            Map<ResourceLocation, BlockLootTableSender> blockSenders,
+            Map<ResourceLocation, MobLootTableSender> mobSenders,
+            Map<ResourceLocation, GameplayLootTableSender> gameplaySenders,
+            Map<ResourceLocation, ArchaeologyLootTableSender> archaeologySenders
+    ) {
+        // One handler per sender category, bound to its sender map once per batch
+        Map<SupplierRoutes.Category, TableHandler> handlers = new EnumMap<>(SupplierRoutes.Category.class);
+        handlers.put(SupplierRoutes.Category.CHEST, (id, pools, mobId) -> processSupplierForChest(id, pools, chestSenders));
+        handlers.put(SupplierRoutes.Category.BLOCK, (id, pools, mobId) -> processSupplierForBlock(id, pools, blockSenders));
+        handlers.put(SupplierRoutes.Category.MOB, (id, pools, mobId) -> processSupplierForMob(id, pools, mobSenders, mobId));
+        handlers.put(SupplierRoutes.Category.GAMEPLAY, (id, pools, mobId) -> processSupplierForGameplay(id, pools, gameplaySenders));
+        handlers.put(SupplierRoutes.Category.ARCHAEOLOGY, (id, pools, mobId) -> processSupplierForArchaeology(id, pools, archaeologySenders));
 
-            List<LootTableParser.ItemEntryResult> entries = supplier.getEntries();
+        Map<TableKey, List<LootDataSupplier>> tables = new LinkedHashMap<>();
+        for (LootDataSupplier supplier : suppliers) {
+            if (supplier == null) continue;
+            try {
+                TableKey table = new TableKey(supplier.getLootTableId(), supplier.getContextType());
+                tables.computeIfAbsent(table, key -> new ArrayList<>()).add(supplier);
+            } catch (Exception e) {
+                EMILoot.LOGGER.error("Error processing supplier " + supplier.getClass().getName(), e);
+            }
+        }
 
-            if (entries == null || entries.isEmpty()) {
+        // Partition up front; disabled categories have no route and are skipped before any supplier computes its entries
+        List<Map.Entry<TableKey, List<LootDataSupplier>>> ordered = new ArrayList<>(tables.entrySet());
+        Map<SupplierRoutes.Category, Lane> lanes = new EnumMap<>(SupplierRoutes.Category.class);
+        for (int slot = 0; slot < ordered.size(); slot++) {
+            Map.Entry<TableKey, List<LootDataSupplier>> table = ordered.get(slot);
+            SupplierRoutes.Category category = routes.getCategory(table.getKey().contextType());
+            if (category == null) {
                 if (EMILoot.DEBUG) {
-                    EMILoot.LOGGER.warn("Supplier for ID " + id + " returned no entries");
+                    EMILoot.LOGGER.info("Skipping supplier for context type: " + table.getKey().contextType());
                 }
-                return;
+                continue;
             }
+            lanes.computeIfAbsent(category, key -> new Lane(key, handlers.get(key))).add(slot, table);
+        }
 
-            if (EMILoot.DEBUG) {
-                EMILoot.LOGGER.info("Processing custom supplier: " + id + " with " + entries.size() + " entries");
+        // Each lane writes the contributions of its tables to their own slots, so the index keeps routing order
+        SupplierIndex.Contribution[] contributions = new SupplierIndex.Contribution[ordered.size()];
+        List<CompletableFuture<Integer>> running = new ArrayList<>();
+        List<Lane> local = new ArrayList<>();
+        for (Lane lane : lanes.values()) {
+            if (parallel && lanes.size() > 1 && lane.threadSafe) {
+                running.add(CompletableFuture.supplyAsync(() -> lane.route(contributions), ForkJoinPool.commonPool()));
+            } else {
+                local.add(lane);
             }
+        }
 
-            // Route to appropriate sender based on context type
-            if (forgeContextType == LootContextParamSets.CHEST && EMILoot.config.parseChestLoot) {
-                processSupplierForChest(id, entries, chestSenders);
-            } else if (forgeContextType == LootContextParamSets.BLOCK && EMILoot.config.parseBlockLoot) {
-                processSupplierForBlock(id, entries, blockSenders);
-            } else if (forgeContextType == LootContextParamSets.ENTITY && EMILoot.config.parseMobLoot) {
-                processSupplierForMob(id, entries, mobSenders, mobId);
-            } else if ((forgeContextType == LootContextParamSets.FISHING ||
-                        forgeContextType == LootContextParamSets.GIFT ||
-                        forgeContextType == LootContextParamSets.PIGLIN_BARTER) &&
-                       EMILoot.config.parseGameplayLoot) {
-                processSupplierForGameplay(id, entries, gameplaySenders);
-            } else if (forgeContextType == LootContextParamSets.ARCHAEOLOGY &&
-                       EMILoot.config.parseArchaeologyLoot) {
-                processSupplierForArchaeology(id, entries, archaeologySenders);
-            } else {
-                if (EMILoot.DEBUG) {
-                    EMILoot.LOGGER.info("Skipping supplier for context type: " + forgeContextType);
+        int folded = 0;
+        for (Lane lane : local) {
+            folded += lane.route(contributions);
+        }
+        for (CompletableFuture<Integer> lane : running) {
+            folded += lane.join();
+        }
+        SupplierMetrics.current().recordFolded(folded);
+
+        if (folded > 0 && EMILoot.DEBUG) {
+            EMILoot.LOGGER.info("Folded " + folded + " duplicate supplier entries into existing entries");
+        }
+
+        SupplierIndex.Builder index = new SupplierIndex.Builder();
+        for (SupplierIndex.Contribution contribution : contributions) {
+            if (contribution != null) {
+                index.add(contribution);
+            }
+        }
+        return index.build();
+    }
+
+    /**
+     * @return The contribution of this table, or null if its suppliers returned no entries
+     */
+    private static SupplierIndex.Contribution processTable(
+            TableKey table,
+            List<LootDataSupplier> suppliers,
+            SupplierRoutes.Category category,
+            TableHandler handler,
+            int[] folded
+    ) {
+        // Convert ResourceLocation (Forge) to ResourceLocation (Fabric) for EMI Loot compatibility
+        ResourceLocation id = new ResourceLocation(table.id().getNamespace(), table.id().getPath());
+        LootContextParamSet forgeContextType = table.contextType();
+        ResourceLocation mobId = null;
+        List<ResourceLocation> sources = new ArrayList<>();
+
+        // Suppliers declaring the same pool name share one pool, every other supplier keeps its own.
+        // Entries are pushed straight into the pools, which fold duplicates as they arrive
+        SupplierMetrics metrics = SupplierMetrics.current();
+        Map<Object, Pool> pools = new LinkedHashMap<>();
+        for (LootDataSupplier supplier : suppliers) {
+            try {
+                Pool pool = pools.computeIfAbsent(supplier.getPoolName() != null ? supplier.getPoolName() : supplier, key -> new Pool());
+                int before = pool.received;
+                long start = System.nanoTime();
+                supplier.forEachEntry(pool);
+                // Lazy and streaming registry suppliers do their real work here
+                if (supplier instanceof LootDataSuppliers.RegisteredSupplier registered) {
+                    metrics.recordSupplierType(registered.typeId(), System.nanoTime() - start);
                 }
+                metrics.recordEntries(forgeContextType, pool.received - before);
+
+                if (pool.received == before) {
+                    if (EMILoot.DEBUG) {
+                        EMILoot.LOGGER.warn("Supplier for ID " + id + " returned no entries");
+                    }
+                    continue;
+                }
+
+                if (mobId == null) {
+                    mobId = supplier.getMobId();
+                }
+                ResourceLocation source = getSourceId(supplier);
+                if (source != null) {
+                    sources.add(source);
+                }
+            } catch (Exception e) {
+                EMILoot.LOGGER.error("Error processing supplier " + id, e);
             }
-        } catch (Exception e) {
-            EMILoot.LOGGER.error("Error processing supplier " + supplier.getLootTableId(), e);
         }
+
+        pools.values().removeIf(Pool::isEmpty);
+        if (pools.isEmpty()) {
+            return null;
+        }
+
+        List<LootTableParser.ItemEntryResult> merged = new ArrayList<>();
+        for (Pool pool : pools.values()) {
+            folded[0] += pool.received - pool.entries.size();
+            merged.addAll(pool.entries.values());
+        }
+
+        if (EMILoot.DEBUG) {
+            EMILoot.LOGGER.info("Processing custom suppliers: " + id + " with " + suppliers.size() + " suppliers in " + pools.size() + " pools");
+        }
+
+        // Route to the sender handler of the context type's category
+        handler.send(id, pools.values(), mobId);
+
+        return new SupplierIndex.Contribution(id, forgeContextType, List.copyOf(sources), List.copyOf(merged),
+            category == SupplierRoutes.Category.MOB ? mobId : null);
     }
 
-    private static void processSupplierForChest(ResourceLocation id, List<LootTableParser.ItemEntryResult> entries,
+    /**
+     * @return Whether a supplier's entries can be read on a worker thread: JSON suppliers and
+     *         registry suppliers whose entries were already computed
+     */
+    private static boolean isThreadSafe(LootDataSupplier supplier) {
+        if (supplier instanceof JsonLootDataSupplier) {
+            return true;
+        }
+        return supplier instanceof LootDataSuppliers.RegisteredSupplier registered && registered.entries() != null;
+    }
+
+    // Senders are only created on a real miss; an existing sender just gets the new pools
+
+    private static void processSupplierForChest(ResourceLocation id, Collection<Pool> pools,
                                                   Map<ResourceLocation, ChestLootTableSender> chestSenders) {
-        ChestLootTableSender sender = chestSenders.getOrDefault(id, new ChestLootTableSender(id));
-        SimpleLootPoolBuilder builder = new SimpleLootPoolBuilder(1.0f);
-        entries.forEach(builder::addItem);
-        sender.addBuilder(builder);
-        chestSenders.put(id, sender);
+        ChestLootTableSender sender = chestSenders.computeIfAbsent(id, ChestLootTableSender::new);
+        for (Pool pool : pools) {
+            SimpleLootPoolBuilder builder = new SimpleLootPoolBuilder(1.0f);
+            pool.entries.values().forEach(builder::addItem);
+            sender.addBuilder(builder);
+        }
     }
 
-    private static void processSupplierForBlock(ResourceLocation id, List<LootTableParser.ItemEntryResult> entries,
+    private static void processSupplierForBlock(ResourceLocation id, Collection<Pool> pools,
                                                   Map<ResourceLocation, BlockLootTableSender> blockSenders) {
-        BlockLootTableSender sender = blockSenders.getOrDefault(id, new BlockLootTableSender(id));
-        ComplexLootPoolBuilder builder = new ComplexLootPoolBuilder(1.0f, new LinkedList<>(), new LinkedList<>());
-        entries.forEach(builder::addItem);
-        sender.addBuilder(builder);
-        blockSenders.put(id, sender);
+        BlockLootTableSender sender = blockSenders.computeIfAbsent(id, BlockLootTableSender::new);
+        for (Pool pool : pools) {
+            ComplexLootPoolBuilder builder = new ComplexLootPoolBuilder(1.0f, new LinkedList<>(), new LinkedList<>());
+            pool.entries.values().forEach(builder::addItem);
+            sender.addBuilder(builder);
+        }
     }
 
-    private static void processSupplierForMob(ResourceLocation id, List<LootTableParser.ItemEntryResult> entries,
+    private static void processSupplierForMob(ResourceLocation id, Collection<Pool> pools,
                                               Map<ResourceLocation, MobLootTableSender> mobSenders, ResourceLocation mobId) {
         MobLootTableSender sender = mobSenders.get(id);
         if (sender == null) {
@@ -105,28 +266,137 @@ public class SupplierProcessor {
                 return;
             }
             sender = new MobLootTableSender(id, mobId);
+            mobSenders.put(id, sender);
+        }
+        for (Pool pool : pools) {
+            ComplexLootPoolBuilder builder = new ComplexLootPoolBuilder(1.0f, new LinkedList<>(), new LinkedList<>());
+            pool.entries.values().forEach(builder::addItem);
+            sender.addBuilder(builder);
         }
-        ComplexLootPoolBuilder builder = new ComplexLootPoolBuilder(1.0f, new LinkedList<>(), new LinkedList<>());
-        entries.forEach(builder::addItem);
-        sender.addBuilder(builder);
-        mobSenders.put(id, sender);
     }
 
-    private static void processSupplierForGameplay(ResourceLocation id, List<LootTableParser.ItemEntryResult> entries,
+    private static void processSupplierForGameplay(ResourceLocation id, Collection<Pool> pools,
                                                      Map<ResourceLocation, GameplayLootTableSender> gameplaySenders) {
-        GameplayLootTableSender sender = gameplaySenders.getOrDefault(id, new GameplayLootTableSender(id));
-        ComplexLootPoolBuilder builder = new ComplexLootPoolBuilder(1.0f, new LinkedList<>(), new LinkedList<>());
-        entries.forEach(builder::addItem);
-        sender.addBuilder(builder);
-        gameplaySenders.put(id, sender);
+        GameplayLootTableSender sender = gameplaySenders.computeIfAbsent(id, GameplayLootTableSender::new);
+        for (Pool pool : pools) {
+            ComplexLootPoolBuilder builder = new ComplexLootPoolBuilder(1.0f, new LinkedList<>(), new LinkedList<>());
+            pool.entries.values().forEach(builder::addItem);
+            sender.addBuilder(builder);
+        }
     }
 
-    private static void processSupplierForArchaeology(ResourceLocation id, List<LootTableParser.ItemEntryResult> entries,
+    private static void processSupplierForArchaeology(ResourceLocation id, Collection<Pool> pools,
                                                         Map<ResourceLocation, ArchaeologyLootTableSender> archaeologySenders) {
-        ArchaeologyLootTableSender sender = archaeologySenders.getOrDefault(id, new ArchaeologyLootTableSender(id));
-        SimpleLootPoolBuilder builder = new SimpleLootPoolBuilder(1.0f);
-        entries.forEach(builder::addItem);
-        sender.addBuilder(builder);
-        archaeologySenders.put(id, sender);
+        ArchaeologyLootTableSender sender = archaeologySenders.computeIfAbsent(id, ArchaeologyLootTableSender::new);
+        for (Pool pool : pools) {
+            SimpleLootPoolBuilder builder = new SimpleLootPoolBuilder(1.0f);
+            pool.entries.values().forEach(builder::addItem);
+            sender.addBuilder(builder);
+        }
+    }
+
+    /**
+     * @return The supplier file or registry key a supplier came from, or null if it is unknown
+     */
+    static ResourceLocation getSourceId(LootDataSupplier supplier) {
+        if (supplier instanceof JsonLootDataSupplier json) {
+            return json.getSourceId();
+        }
+        if (supplier instanceof LootDataSuppliers.RegisteredSupplier registered) {
+            return registered.typeId();
+        }
+        return null;
+    }
+
+    /**
+     * @return Whether suppliers of this context type are routed to a sender,
+     *         i.e. the type is supported and its EMI Loot category is enabled
+     */
+    public static boolean isRouted(LootContextParamSet contextType) {
+        return LootDataSuppliers.getSnapshot().routes().withCurrentConfig().isRouted(contextType);
+    }
+
+    /**
+     * Sends the pools of one table to a sender map.
+     */
+    private interface TableHandler {
+        void send(ResourceLocation id, Collection<Pool> pools, ResourceLocation mobId);
+    }
+
+    /**
+     * Tables of one sender category, routed in order into that category's sender map only.
+     */
+    private static final class Lane {
+        private final SupplierRoutes.Category category;
+        private final TableHandler handler;
+        private final List<Integer> slots = new ArrayList<>();
+        private final List<Map.Entry<TableKey, List<LootDataSupplier>>> tables = new ArrayList<>();
+        private boolean threadSafe = true;
+
+        Lane(SupplierRoutes.Category category, TableHandler handler) {
+            this.category = category;
+            this.handler = handler;
+        }
+
+        void add(int slot, Map.Entry<TableKey, List<LootDataSupplier>> table) {
+            slots.add(slot);
+            tables.add(table);
+            for (LootDataSupplier supplier : table.getValue()) {
+                threadSafe &= isThreadSafe(supplier);
+            }
+        }
+
+        /**
+         * @return The number of duplicate entries folded away in this lane
+         */
+        int route(SupplierIndex.Contribution[] contributions) {
+            int[] folded = {0};
+            for (int i = 0; i < tables.size(); i++) {
+                Map.Entry<TableKey, List<LootDataSupplier>> table = tables.get(i);
+                try {
+                    contributions[slots.get(i)] = processTable(table.getKey(), table.getValue(), category, handler, folded);
+                } catch (Exception e) {
+                    EMILoot.LOGGER.error("Error processing suppliers for " + table.getKey().id(), e);
+                }
+            }
+            return folded[0];
+        }
+    }
+
+    /**
+     * Suppliers are coalesced per loot table and context type.
+     */
+    private record TableKey(ResourceLocation id, LootContextParamSet contextType) {
+    }
+
+    /**
+     * Entries of one synthetic pool. Entries that only differ by weight are folded into a single entry
+     * with the summed weight as they arrive; within a pool this keeps every item's chance the same
+     * while sending and displaying fewer entries.
+     */
+    private static final class Pool implements Consumer<LootTableParser.ItemEntryResult> {
+        private final Map<EntryKey, LootTableParser.ItemEntryResult> entries = new LinkedHashMap<>();
+        private int received;
+
+        @Override
+        public void accept(LootTableParser.ItemEntryResult entry) {
+            if (entry == null) return;
+            received++;
+
+            ItemStack stack = entry.item();
+            EntryKey key = new EntryKey(stack.getItem(), stack.getCount(), stack.getTag(), entry.conditions(), entry.functions());
+            entries.merge(key, entry, (existing, added) ->
+                new LootTableParser.ItemEntryResult(existing.item(), existing.weight() + added.weight(), existing.conditions(), existing.functions()));
+        }
+
+        boolean isEmpty() {
+            return entries.isEmpty();
+        }
+    }
+
+    /**
+     * Everything that distinguishes two entries apart from their weight.
+     */
+    private record EntryKey(Item item, int count, CompoundTag tag, List<TextKey> conditions, List<TextKey> functions) {
     }
 }
@@ -0,0 +1,19 @@
+package com.saloeater.emi_loot_registry;
+
+/**
+ * What the published snapshot keeps of the supplier data once routing copied it into EMI Loot's senders.
+ */
+public enum SupplierRetention {
+    /**
+     * Keep no index. Table, item and mob lookups return nothing.
+     */
+    NONE,
+    /**
+     * Keep the index of tables, sources, items and mobs, without the entries themselves.
+     */
+    SUMMARY,
+    /**
+     * Keep the JSON suppliers and the index with all merged entries, for tooling.
+     */
+    FULL
+}
@@ -0,0 +1,196 @@
+package com.saloeater.emi_loot_registry;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mojang.logging.LogUtils;
+import fzzyhmstrs.emi_loot.EMILoot;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParamSet;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParamSets;
+import org.slf4j.Logger;
+
+import java.io.Reader;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routing table compiled once per reload: which supplier folder holds which context type, and which
+ * EMI Loot sender category each context type goes to. The EMI Loot category flags are read once while
+ * compiling, so disabled categories simply have no route.
+ *
+ * <p>Besides the built-in folders, extra folders can be added by mods with {@link #registerFolder}
+ * and by datapacks with files in {@code data/<namespace>/emi_loot_supplier_routes/}:
+ * <pre>
+ * {
+ *   "folder": "gift",
+ *   "context_type": "minecraft:gift"
+ * }
+ * </pre>
+ * Context types other than chest, block, entity and archaeology are routed as gameplay loot.
+ */
+public final class SupplierRoutes {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final String ROUTES_FOLDER = "emi_loot_supplier_routes";
+
+    /**
+     * Routes nothing. The routes of the empty snapshot before the first reload, when EMI Loot has no senders yet.
+     */
+    public static final SupplierRoutes NONE = new SupplierRoutes(Map.of(), Map.of());
+
+    // Folders registered by mods, kept across reloads
+    private static final Map<String, LootContextParamSet> registeredFolders = new ConcurrentHashMap<>();
+
+    private final Map<String, LootContextParamSet> folders;
+    private final Map<LootContextParamSet, Category> categories;
+
+    private SupplierRoutes(Map<String, LootContextParamSet> folders, Map<LootContextParamSet, Category> categories) {
+        this.folders = folders;
+        this.categories = categories;
+    }
+
+    /**
+     * Registers an extra supplier folder, e.g. {@code piglin_bartering} for
+     * {@link LootContextParamSets#PIGLIN_BARTER}. Takes effect on the next reload.
+     */
+    public static void registerFolder(String folder, LootContextParamSet contextType) {
+        if (folder.isEmpty() || folder.contains("/")) {
+            throw new IllegalArgumentException("Supplier folder must be a single path segment: " + folder);
+        }
+        registeredFolders.put(folder, contextType);
+    }
+
+    /**
+     * Compiles the routes for a reload from the built-in folders, registered folders and datapack route files.
+     */
+    static SupplierRoutes compile(ResourceManager resourceManager) {
+        Map<String, LootContextParamSet> folders = new LinkedHashMap<>();
+        folders.put("chests", LootContextParamSets.CHEST);
+        folders.put("blocks", LootContextParamSets.BLOCK);
+        folders.put("entities", LootContextParamSets.ENTITY);
+        folders.put("gameplay", LootContextParamSets.FISHING);
+        folders.put("archaeology", LootContextParamSets.ARCHAEOLOGY);
+        folders.putAll(registeredFolders);
+
+        for (Map.Entry<ResourceLocation, Resource> file : resourceManager.listResources(ROUTES_FOLDER, path -> path.getPath().endsWith(".json")).entrySet()) {
+            try (Reader reader = file.getValue().openAsReader()) {
+                JsonObject route = JsonParser.parseReader(reader).getAsJsonObject();
+                String folder = route.get("folder").getAsString();
+                ResourceLocation contextId = new ResourceLocation(route.get("context_type").getAsString());
+                LootContextParamSet contextType = LootContextParamSets.get(contextId);
+                if (contextType == null) {
+                    LOGGER.error("Unknown context type {} in supplier route {}", contextId, file.getKey());
+                } else if (folder.isEmpty() || folder.contains("/")) {
+                    LOGGER.error("Supplier folder must be a single path segment in supplier route {}", file.getKey());
+                } else {
+                    folders.put(folder, contextType);
+                }
+            } catch (Exception e) {
+                LOGGER.error("Error parsing supplier route {}: {}", file.getKey(), e.getMessage());
+            }
+        }
+
+        return new SupplierRoutes(Map.copyOf(folders), compileCategories(folders.values()));
+    }
+
+    /**
+     * @return The same folders with categories compiled from the current EMI Loot config. Used by entry
+     *         points outside a reload, which would otherwise route nothing before the first reload
+     *         ({@link #NONE}) and miss category changes made since the last one.
+     */
+    public SupplierRoutes withCurrentConfig() {
+        return new SupplierRoutes(folders, compileCategories(folders.values()));
+    }
+
+    private static Map<LootContextParamSet, Category> compileCategories(Collection<LootContextParamSet> folderTypes) {
+        // Context types code suppliers can use, plus every context type a folder maps to
+        Map<LootContextParamSet, Category> categories = new HashMap<>();
+        for (LootContextParamSet contextType : new LootContextParamSet[]{
+            LootContextParamSets.CHEST, LootContextParamSets.BLOCK, LootContextParamSets.ENTITY, LootContextParamSets.FISHING,
+            LootContextParamSets.GIFT, LootContextParamSets.PIGLIN_BARTER, LootContextParamSets.ARCHAEOLOGY}) {
+            addCategory(categories, contextType);
+        }
+        folderTypes.forEach(contextType -> addCategory(categories, contextType));
+        return Map.copyOf(categories);
+    }
+
+    private static void addCategory(Map<LootContextParamSet, Category> categories, LootContextParamSet contextType) {
+        Category category = Category.of(contextType);
+        if (category.isEnabled()) {
+            categories.put(contextType, category);
+        }
+    }
+
+    /**
+     * @return Every supplier folder below {@code emi_loot_suppliers}
+     */
+    public Set<String> getFolders() {
+        return folders.keySet();
+    }
+
+    /**
+     * Resolves a supplier file to its context type by the folder right below the base folder.
+     *
+     * @param path Resource path such as {@code emi_loot_suppliers/chests/village.json}
+     * @return The context type, or null if the folder has no route
+     */
+    public LootContextParamSet getContextType(String path) {
+        int start = path.indexOf('/') + 1;
+        int end = path.indexOf('/', start);
+        return end < 0 ? null : folders.get(path.substring(start, end));
+    }
+
+    /**
+     * @return Whether suppliers of this context type are routed to a sender,
+     *         i.e. the type is supported and its EMI Loot category is enabled
+     */
+    public boolean isRouted(LootContextParamSet contextType) {
+        return categories.containsKey(contextType);
+    }
+
+    /**
+     * @return The sender category of the context type, or null if it is not routed
+     */
+    public Category getCategory(LootContextParamSet contextType) {
+        return categories.get(contextType);
+    }
+
+    /**
+     * EMI Loot sender maps suppliers can be routed to.
+     */
+    public enum Category {
+        CHEST,
+        BLOCK,
+        MOB,
+        GAMEPLAY,
+        ARCHAEOLOGY;
+
+        static Category of(LootContextParamSet contextType) {
+            if (contextType == LootContextParamSets.CHEST) {
+                return CHEST;
+            } else if (contextType == LootContextParamSets.BLOCK) {
+                return BLOCK;
+            } else if (contextType == LootContextParamSets.ENTITY) {
+                return MOB;
+            } else if (contextType == LootContextParamSets.ARCHAEOLOGY) {
+                return ARCHAEOLOGY;
+            }
+            return GAMEPLAY;
+        }
+
+        boolean isEnabled() {
+            return switch (this) {
+                case CHEST -> EMILoot.config.parseChestLoot;
+                case BLOCK -> EMILoot.config.parseBlockLoot;
+                case MOB -> EMILoot.config.parseMobLoot;
+                case GAMEPLAY -> EMILoot.config.parseGameplayLoot;
+                case ARCHAEOLOGY -> EMILoot.config.parseArchaeologyLoot;
+            };
+        }
+    }
+}
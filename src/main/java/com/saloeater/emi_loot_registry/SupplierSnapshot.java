@@ -0,0 +1,22 @@
+package com.saloeater.emi_loot_registry;
+
+import java.util.List;
+
+/**
+ * Immutable result of one reload: the JSON suppliers, the routes they were routed with and the
+ * contribution index built from them.
+ * A new snapshot is published with a single atomic swap once routing finished, so readers never see
+ * a half-finished reload. Compare {@link #generation()} with {@link LootDataSuppliers#getGeneration()}
+ * to cheaply detect that a held snapshot is stale.
+ *
+ * <p>How much of the JSON suppliers and the index is kept depends on the configured {@link SupplierRetention}.
+ *
+ * @param generation Number of the reload that produced this snapshot, 0 before the first reload
+ */
+public record SupplierSnapshot(long generation, List<JsonLootDataSupplier> jsonSuppliers, SupplierRoutes routes, SupplierIndex index) {
+    public static final SupplierSnapshot EMPTY = new SupplierSnapshot(0, List.of(), SupplierRoutes.NONE, SupplierIndex.EMPTY);
+
+    public SupplierSnapshot {
+        jsonSuppliers = List.copyOf(jsonSuppliers);
+    }
+}